@@ -2,6 +2,7 @@ package com.todo.app;
 
 import com.todo.model.TaskList;
 import com.todo.storage.StorageException;
+import com.todo.storage.StorageOptions;
 import com.todo.storage.TaskRepository;
 import com.todo.tui.ListScreen;
 import lombok.AccessLevel;
@@ -14,7 +15,7 @@ public class TodoApp {
     @NonNull private final TaskRepository repository;
 
     public static TodoApp create() {
-        final TaskRepository repository = new TaskRepository();
+        final TaskRepository repository = new TaskRepository(StorageOptions.fromSystemProperties());
         final TaskList taskList;
         try {
             taskList = repository.load();
@@ -0,0 +1,93 @@
+package com.todo.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Undo and redo stacks for a {@link TaskList}. A step is what one action changed: the recorded
+ * changes and, for each, the change that reverts it. Both carry absolute task state keyed by id,
+ * so reverting a step is a replay like any other and a step costs memory in proportion to what
+ * the action changed, never to the size of the list. Beyond {@code depth} steps the oldest is
+ * forgotten.
+ */
+final class History {
+    static final int DEFAULT_DEPTH = 500;
+
+    private final int         depth;
+    private final Deque<Step> undo     = new ArrayDeque<>();
+    private final Deque<Step> redo     = new ArrayDeque<>();
+    private final Step        building = new Step(new ArrayList<>(), new ArrayList<>());
+
+    History(final int depth) {
+        this.depth = depth;
+    }
+
+    /** Adds a change to the step being built, together with the change that reverts it. */
+    void record(final TaskChange change, final TaskChange inverse) {
+        building.changes().add(change);
+        building.inverses().add(inverse);
+    }
+
+    /** How much of the step being built is recorded so far, to {@link #rollback} to. */
+    int mark() {
+        return building.changes().size();
+    }
+
+    /**
+     * Drops what was recorded into the step being built since {@code mark} and returns the changes
+     * that revert it, in the order to apply them.
+     */
+    List<TaskChange> rollback(final int mark) {
+        final List<TaskChange> inverses = building.inverses().subList(mark, building.inverses().size());
+        final List<TaskChange> reverting = List.copyOf(inverses).reversed();
+        inverses.clear();
+        building.changes().subList(mark, building.changes().size()).clear();
+        return reverting;
+    }
+
+    /** Ends the step being built; a new step makes the undone ones unreachable. */
+    void commit() {
+        if (building.changes().isEmpty()) return;
+        undo.push(new Step(List.copyOf(building.changes()), List.copyOf(building.inverses())));
+        building.changes().clear();
+        building.inverses().clear();
+        redo.clear();
+        if (undo.size() > depth) undo.removeLast();
+    }
+
+    /** The changes that revert the newest step, in the order to apply them, or null if there is none. */
+    List<TaskChange> undo() {
+        final Step step = undo.poll();
+        if (step == null) return null;
+        redo.push(step);
+        return step.inverses().reversed();
+    }
+
+    /** The changes of the newest undone step, or null if there is none. */
+    List<TaskChange> redo() {
+        final Step step = redo.poll();
+        if (step == null) return null;
+        undo.push(step);
+        return step.changes();
+    }
+
+    /** Rewrites every kept change, e.g. when tasks are renumbered. */
+    void replaceAll(final UnaryOperator<TaskChange> operator) {
+        for (final Deque<Step> steps : List.of(undo, redo)) {
+            final List<Step> rewritten = new ArrayList<>(steps.size());
+            for (final Step step : steps) {
+                rewritten.add(new Step(step.changes().stream().map(operator).toList(),
+                        step.inverses().stream().map(operator).toList()));
+            }
+            steps.clear();
+            steps.addAll(rewritten);
+        }
+        building.changes().replaceAll(operator);
+        building.inverses().replaceAll(operator);
+    }
+
+    private record Step(List<TaskChange> changes, List<TaskChange> inverses) {}
+}
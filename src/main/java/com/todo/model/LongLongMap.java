@@ -0,0 +1,92 @@
+package com.todo.model;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code long} without boxing, used to find a task's
+ * order key by id. Linear probing with backward-shift deletion, so removals leave no tombstones.
+ * {@link Long#MIN_VALUE} marks an empty slot and cannot be used as a key; as a value it is what
+ * {@link #get} returns for a missing key.
+ */
+final class LongLongMap {
+    static final long MISSING = Long.MIN_VALUE;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int    size;
+
+    LongLongMap(final int expected) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expected) capacity <<= 1;
+        keys   = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    long get(final long key) {
+        final int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+            if (keys[slot] == EMPTY) return MISSING;
+        }
+    }
+
+    void put(final long key, final long value) {
+        final int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size > keys.length * 3 / 4) {
+                values[slot] = value;
+                rehash();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    void remove(final long key) {
+        final int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) return;
+            slot = (slot + 1) & mask;
+        }
+        size--;
+        // Pull later entries of the same probe run back so lookups never stop at the hole early.
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            final int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole]   = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        final long[] oldKeys   = keys;
+        final long[] oldValues = values;
+        keys   = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static int slot(final long key, final int mask) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
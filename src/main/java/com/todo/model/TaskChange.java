@@ -0,0 +1,27 @@
+package com.todo.model;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single mutation of a {@link TaskList}, keyed by task id.
+ * <p>
+ * {@code task} is the task state after the change (the removed task for {@code DELETE}) and
+ * {@code position} its index in the list after the change (before it for {@code DELETE}).
+ * Because every change carries absolute state rather than a delta, applying the same change
+ * twice leaves the list as applying it once.
+ */
+public record TaskChange(Type type, Task task, int position) {
+
+    public enum Type {
+        ADD, TOGGLE, UPDATE, MOVE, DELETE
+    }
+
+    public TaskChange {
+        requireNonNull(type, "type is null");
+        requireNonNull(task, "task is null");
+    }
+
+    public long id() {
+        return task.id();
+    }
+}
@@ -0,0 +1,99 @@
+package com.todo.model;
+
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static java.util.Objects.checkIndex;
+
+/**
+ * Tasks stored column by column in primitive arrays: ids and creation times as {@code long}s,
+ * done flags in a {@link BitSet} and all texts back to back, UTF-8 encoded, in one byte arena.
+ * A task costs a few dozen bytes plus its text instead of the five objects a {@link Task} with
+ * its {@link String} and {@link LocalDateTime} takes. {@link Task} objects are only created when
+ * read, and are not kept, so a list backed by columns stays this small however much is shown.
+ */
+public final class TaskColumns implements TaskSource {
+    private final BitSet done = new BitSet();
+    private long[]       ids;
+    private long[]       seconds;
+    private int[]        nanos;
+    private int[]        offsets;
+    private byte[]       arena;
+    private int          size;
+
+    public TaskColumns(final int expected) {
+        final int capacity = Math.max(expected, 16);
+        ids     = new long[capacity];
+        seconds = new long[capacity];
+        nanos   = new int[capacity];
+        offsets = new int[capacity + 1];
+        arena   = new byte[capacity * 32];
+    }
+
+    /** Appends {@code task}; columns are filled once, before the list they back is created. */
+    public void add(@NonNull final Task task) {
+        if (size == ids.length) grow();
+        final byte[] text = task.text().getBytes(StandardCharsets.UTF_8);
+        final int    from = offsets[size];
+        if (from + text.length > arena.length) arena = Arrays.copyOf(arena, Math.max(arena.length * 2, from + text.length));
+        System.arraycopy(text, 0, arena, from, text.length);
+        ids[size]     = task.id();
+        seconds[size] = task.createdAt().toEpochSecond(ZoneOffset.UTC);
+        nanos[size]   = task.createdAt().getNano();
+        done.set(size, task.done());
+        offsets[++size] = from + text.length;
+    }
+
+    /** Releases the slack left by growing, once all tasks are added. */
+    public TaskColumns trim() {
+        ids     = Arrays.copyOf(ids, size);
+        seconds = Arrays.copyOf(seconds, size);
+        nanos   = Arrays.copyOf(nanos, size);
+        offsets = Arrays.copyOf(offsets, size + 1);
+        arena   = Arrays.copyOf(arena, offsets[size]);
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long id(final int index) {
+        return ids[checkIndex(index, size)];
+    }
+
+    @Override
+    public boolean done(final int index) {
+        return done.get(checkIndex(index, size));
+    }
+
+    @Override
+    public Task get(final int index) {
+        checkIndex(index, size);
+        return new Task(ids[index],
+                new String(arena, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8),
+                done.get(index),
+                LocalDateTime.ofEpochSecond(seconds[index], nanos[index], ZoneOffset.UTC));
+    }
+
+    /** Decoding is a copy out of the arena, cheaper than keeping every task that was ever shown. */
+    @Override
+    public boolean retainsDecoded() {
+        return false;
+    }
+
+    private void grow() {
+        final int capacity = ids.length + (ids.length >> 1);
+        ids     = Arrays.copyOf(ids, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        nanos   = Arrays.copyOf(nanos, capacity);
+        offsets = Arrays.copyOf(offsets, capacity + 1);
+    }
+}
@@ -2,61 +2,456 @@ package com.todo.model;
 
 import lombok.NonNull;
 
+import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
 
+/**
+ * Ordered tasks plus the log of changes not yet persisted. Writers synchronize on the list, so a
+ * background saver can drain changes together with the matching contents by holding its monitor.
+ * Readers do not lock: every completed change publishes an immutable {@link TaskSnapshot}, which
+ * {@link #snapshot()} and {@link #getAll()} return, so a reader on any thread sees one consistent
+ * state for as long as it keeps it, even while saves merge in other processes' changes.
+ *
+ * <p>Every action also goes on a bounded {@link History}, from which {@link #undo()} and
+ * {@link #redo()} replay it backwards or forwards as ordinary, recorded changes.
+ */
 public class TaskList {
-    private final List<Task>  tasks;
-    private final AtomicLong  nextId;
+    private final TaskTree         tasks;
+    private final List<TaskChange> changes  = new ArrayList<>();
+    private final List<Task>       openView = new OpenView();
+    private final History          history  = new History(History.DEFAULT_DEPTH);
+    private long                   nextId;
+    private int                    batchDepth;
+    private volatile TaskSnapshot  published;
 
     public TaskList(@NonNull final List<Task> tasks) {
-        this.tasks  = new ArrayList<>(tasks);
-        this.nextId = new AtomicLong(tasks.stream().mapToLong(Task::id).max().orElse(0) + 1);
+        this(new TaskTree(tasks));
     }
 
-    public Task add(@NonNull final String text) {
-        final Task task = Task.create(nextId.getAndIncrement(), text);
+    /** Backs the list by {@code source}; tasks are only materialized when first read. */
+    public TaskList(@NonNull final TaskSource source) {
+        this(new TaskTree(source));
+    }
+
+    private TaskList(final TaskTree tasks) {
+        this(tasks, maxId(tasks));
+    }
+
+    private TaskList(final TaskTree tasks, final long maxId) {
+        this.tasks     = tasks;
+        this.nextId    = maxId + 1;
+        this.published = tasks.snapshot();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs {@code operations}, any number of calls on this list, as one change: readers see the
+     * list before or after all of them, a background save drains them together, and the new state
+     * is published once rather than per call. If {@code operations} throws, what they applied is
+     * reverted and forgotten before the exception propagates, so the batch is all or nothing.
+     */
+    public synchronized void batch(@NonNull final Consumer<? super TaskList> operations) {
+        final int changed  = changes.size();
+        final int recorded = history.mark();
+        batchDepth++;
+        try {
+            operations.accept(this);
+        } catch (final RuntimeException | Error e) {
+            for (final TaskChange inverse : history.rollback(recorded)) replay(inverse);
+            changes.subList(changed, changes.size()).clear();
+            throw e;
+        } finally {
+            batchDepth--;
+            publish();
+        }
+    }
+
+    public synchronized Task add(@NonNull final String text) {
+        final Task task = Task.create(nextId++, text);
         tasks.add(task);
+        record(new TaskChange(TaskChange.Type.ADD, task, tasks.size() - 1),
+               new TaskChange(TaskChange.Type.DELETE, task, tasks.size() - 1));
+        publish();
         return task;
     }
 
-    public Task delete(final int index) {
+    public synchronized Task delete(final int index) {
         if (index < 0 || index >= tasks.size()) return null;
-        return tasks.remove(index);
+        final Task removed = tasks.remove(index);
+        record(new TaskChange(TaskChange.Type.DELETE, removed, index),
+               new TaskChange(TaskChange.Type.ADD, removed, index));
+        publish();
+        return removed;
     }
 
-    public boolean toggleDone(final int index) {
+    public synchronized boolean toggleDone(final int index) {
         if (index < 0 || index >= tasks.size()) return false;
         final Task old = tasks.get(index);
-        tasks.set(index, new Task(old.id(), old.text(), !old.done(), old.createdAt()));
+        final Task updated = new Task(old.id(), old.text(), !old.done(), old.createdAt());
+        tasks.set(index, updated);
+        record(new TaskChange(TaskChange.Type.TOGGLE, updated, index),
+               new TaskChange(TaskChange.Type.TOGGLE, old, index));
+        publish();
         return true;
     }
 
-    public boolean updateText(final int index, @NonNull final String newText) {
+    public synchronized boolean updateText(final int index, @NonNull final String newText) {
         if (index < 0 || index >= tasks.size()) return false;
         final Task old = tasks.get(index);
-        tasks.set(index, new Task(old.id(), newText, old.done(), old.createdAt()));
+        final Task updated = new Task(old.id(), newText, old.done(), old.createdAt());
+        tasks.set(index, updated);
+        record(new TaskChange(TaskChange.Type.UPDATE, updated, index),
+               new TaskChange(TaskChange.Type.UPDATE, old, index));
+        publish();
         return true;
     }
 
-    public boolean moveUp(final int index) {
-        if (index <= 0 || index >= tasks.size()) return false;
-        final Task t = tasks.remove(index);
-        tasks.add(index - 1, t);
-        return true;
+    public synchronized boolean moveUp(final int index) {
+        return index > 0 && move(index, index - 1);
     }
 
-    public boolean moveDown(final int index) {
-        if (index < 0 || index >= tasks.size() - 1) return false;
-        final Task t = tasks.remove(index);
-        tasks.add(index + 1, t);
+    public synchronized boolean moveDown(final int index) {
+        return index < tasks.size() - 1 && move(index, index + 1);
+    }
+
+    /** Moves the task at {@code index} to {@code position}, clamped to the list; 0 moves it to the top. */
+    public synchronized boolean move(final int index, final int position) {
+        if (index < 0 || index >= tasks.size()) return false;
+        final int target = clamp(position, tasks.size() - 1);
+        if (target == index) return false;
+        tasks.move(index, target);
+        record(new TaskChange(TaskChange.Type.MOVE, tasks.get(target), target),
+               new TaskChange(TaskChange.Type.MOVE, tasks.get(target), index));
+        publish();
         return true;
     }
 
-    public List<Task> getAll()  { return tasks; }
+    /**
+     * Reverts the newest action not yet undone; a batch counts as one action. The reverting changes
+     * are recorded like any other, so they are saved, and merge with other processes' changes, the
+     * same way. Changes that no longer fit, e.g. to a task another process deleted, are skipped.
+     *
+     * @return false if there is nothing to undo
+     */
+    public synchronized boolean undo() {
+        return replayStep(history.undo());
+    }
+
+    /** Repeats the newest undone action; false if there is none, or a new action made it unreachable. */
+    public synchronized boolean redo() {
+        return replayStep(history.redo());
+    }
+
+    public synchronized Task deleteById(final long id) {
+        return delete(tasks.indexOfId(id));
+    }
+
+    public synchronized boolean toggleDoneById(final long id) {
+        return toggleDone(tasks.indexOfId(id));
+    }
+
+    public synchronized boolean updateTextById(final long id, @NonNull final String newText) {
+        return updateText(tasks.indexOfId(id), newText);
+    }
+
+    public synchronized boolean moveUpById(final long id) {
+        return moveUp(tasks.indexOfId(id));
+    }
+
+    public synchronized boolean moveDownById(final long id) {
+        return moveDown(tasks.indexOfId(id));
+    }
+
+    /** Marks the task with {@code id} done or open; false if it is missing or already so. */
+    public synchronized boolean setDoneById(final long id, final boolean done) {
+        final int index = tasks.indexOfId(id);
+        return index >= 0 && tasks.done(index) != done && toggleDone(index);
+    }
+
+    public synchronized boolean moveById(final long id, final int position) {
+        return move(tasks.indexOfId(id), position);
+    }
+
+    /**
+     * Applies a change recorded elsewhere (e.g. replayed from a journal) without recording it again.
+     * Changes that no longer fit the list, such as a toggle of a deleted task, are ignored; adding a
+     * task that is already present only moves it to the recorded position.
+     */
+    public synchronized void apply(@NonNull final TaskChange change) {
+        replay(change);
+        publish();
+    }
+
+    private void replay(final TaskChange change) {
+        final Task task  = change.task();
+        final int  index = indexOfId(task.id());
+        switch (change.type()) {
+            case ADD -> {
+                if (index >= 0) {
+                    moveTo(index, change.position());
+                    return;
+                }
+                tasks.add(clamp(change.position(), tasks.size()), task);
+                nextId = Math.max(nextId, task.id() + 1);
+            }
+            case TOGGLE, UPDATE -> {
+                if (index >= 0) tasks.set(index, task);
+            }
+            case MOVE -> {
+                if (index >= 0) moveTo(index, change.position());
+            }
+            case DELETE -> {
+                if (index >= 0) tasks.remove(index);
+            }
+        }
+    }
+
+    /**
+     * Merges changes another process saved after this list was last in sync with disk. The foreign
+     * changes are applied first and this process's {@code pending} changes (drained, not yet
+     * saved) and undrained changes on top, which is the order in which they end up on disk. Tasks
+     * this process added under an id the other process also used are given a fresh id.
+     *
+     * @return {@code pending}, with renumbered ids where needed, ready to be saved
+     */
+    public synchronized List<TaskChange> merge(@NonNull final List<TaskChange> foreign,
+                                               @NonNull final List<TaskChange> pending) {
+        final Map<Long, LocalDateTime> foreignAdds = new HashMap<>();
+        long maxForeignId = 0;
+        for (final TaskChange change : foreign) {
+            if (change.type() == TaskChange.Type.ADD) foreignAdds.put(change.id(), change.task().createdAt());
+            maxForeignId = Math.max(maxForeignId, change.id());
+        }
+        nextId = Math.max(nextId, maxForeignId + 1);
+        final List<TaskChange> renumbered = renumber(foreignAdds, pending);
+        foreign.forEach(this::replay);
+        renumbered.forEach(this::replay);
+        changes.forEach(this::replay);
+        publish();
+        return renumbered;
+    }
+
+    /**
+     * Like {@link #merge}, but starting over from {@code base}, the full state read back from disk,
+     * for when the other process's changes are no longer available one by one.
+     *
+     * @return {@code pending}, with renumbered ids where needed, ready to be saved
+     */
+    public synchronized List<TaskChange> rebase(@NonNull final List<Task> base,
+                                                @NonNull final List<TaskChange> pending) {
+        final Map<Long, LocalDateTime> baseIds = new HashMap<>();
+        long maxBaseId = 0;
+        for (final Task task : base) {
+            baseIds.put(task.id(), task.createdAt());
+            maxBaseId = Math.max(maxBaseId, task.id());
+        }
+        nextId = Math.max(nextId, maxBaseId + 1);
+        final List<TaskChange> renumbered = renumber(baseIds, pending);
+        tasks.reset(base);
+        renumbered.forEach(this::replay);
+        changes.forEach(this::replay);
+        publish();
+        return renumbered;
+    }
+
+    /**
+     * Puts changes drained by a save that then failed back in front of the undrained ones, so the
+     * next save drains them again.
+     */
+    public synchronized void requeue(@NonNull final List<TaskChange> drained) {
+        changes.addAll(0, drained);
+    }
+
+    /** Returns the changes made since the previous call, oldest first, and forgets them. */
+    public synchronized List<TaskChange> drainChanges() {
+        final List<TaskChange> drained = List.copyOf(changes);
+        changes.clear();
+        return drained;
+    }
+
+    /** The contents after the last completed change; immutable, and safe to read from any thread. */
+    public TaskSnapshot snapshot() {
+        return published;
+    }
+
+    public List<Task> getAll()  { return published; }
 
+    /** A copy of the open tasks in list order; see {@link #openView()} for a live, copy-free view. */
     public List<Task> getOpen() {
-        return tasks.stream().filter(t -> !t.done()).toList();
+        return List.copyOf(published.openView());
+    }
+
+    /**
+     * The open tasks in list order as a live, read-only view: it follows every later change, and
+     * {@code get} and {@code size} are O(log n) lookups in an index of open positions.
+     */
+    public List<Task> openView() {
+        return openView;
+    }
+
+    public int openCount() {
+        return published.openCount();
+    }
+
+    /**
+     * Up to {@code limit} tasks whose text contains every word of {@code query}, the last one as
+     * typed so far, best matches first; done tasks only if {@code includeDone}. The index behind
+     * it is built on first use and then kept up to date by every change.
+     */
+    public synchronized List<Task> search(@NonNull final String query, final int limit, final boolean includeDone) {
+        return tasks.search(query, limit, includeDone);
+    }
+
+    /**
+     * Up to {@code limit} tasks whose text is most like {@code query}, by shared trigrams, so that
+     * partial words and typos still match; done tasks only if {@code includeDone}. Like
+     * {@link #search}, the index is built on first use.
+     */
+    public synchronized List<Task> fuzzySearch(@NonNull final String query, final int limit, final boolean includeDone) {
+        return tasks.fuzzySearch(query, limit, includeDone);
+    }
+
+    /** The task with {@code id}, or null if there is none. */
+    public synchronized Task findById(final long id) {
+        final int index = tasks.indexOfId(id);
+        return index < 0 ? null : tasks.get(index);
+    }
+
+    /** Rank among the open tasks of the task with {@code id}, or -1 if it is missing or done. */
+    public synchronized int openIndexOf(final long id) {
+        final int index = tasks.indexOfId(id);
+        return index < 0 || tasks.done(index) ? -1 : tasks.openRank(index);
+    }
+
+    public int doneCount() {
+        return published.stats().done();
+    }
+
+    /** Counts as of the last completed change, read in O(1) without locking; cheap enough for every frame. */
+    public TaskStats stats() {
+        return published.stats();
+    }
+
+    private static long maxId(final TaskTree tasks) {
+        long maxId = 0;
+        for (int i = 0; i < tasks.size(); i++) maxId = Math.max(maxId, tasks.id(i));
+        return maxId;
+    }
+
+    private void record(final TaskChange change, final TaskChange inverse) {
+        changes.add(change);
+        history.record(change, inverse);
+    }
+
+    /** Replays and records {@code step}, outside the history it came from. */
+    private boolean replayStep(final List<TaskChange> step) {
+        if (step == null) return false;
+        for (final TaskChange change : step) {
+            replay(change);
+            changes.add(change);
+        }
+        publish();
+        return true;
+    }
+
+    private void publish() {
+        if (batchDepth > 0) return;
+        history.commit();
+        published = tasks.snapshot();
+    }
+
+    /**
+     * Moves tasks this process added, and has not saved yet, off ids in {@code taken}, rewriting the
+     * list, the undrained changes and {@code pending}. {@code taken} maps each id to the creation
+     * time of the task holding it; a task with the same id and creation time is this process's
+     * own, written by a save that then failed, and keeps its id.
+     */
+    private List<TaskChange> renumber(final Map<Long, LocalDateTime> taken, final List<TaskChange> pending) {
+        final Map<Long, Long> ids = new HashMap<>();
+        for (final List<TaskChange> log : List.of(pending, changes)) {
+            for (final TaskChange change : log) {
+                final LocalDateTime holder = taken.get(change.id());
+                if (change.type() == TaskChange.Type.ADD && holder != null && !holder.equals(change.task().createdAt())) {
+                    ids.computeIfAbsent(change.id(), id -> nextId++);
+                }
+            }
+        }
+        if (ids.isEmpty()) return pending;
+        for (final Map.Entry<Long, Long> e : ids.entrySet()) {
+            final int index = indexOfId(e.getKey());
+            if (index >= 0) tasks.set(index, withId(tasks.get(index), e.getValue()));
+        }
+        changes.replaceAll(change -> renumber(change, ids));
+        history.replaceAll(change -> renumber(change, ids));
+        return pending.stream().map(change -> renumber(change, ids)).toList();
+    }
+
+    private static TaskChange renumber(final TaskChange change, final Map<Long, Long> ids) {
+        final Long id = ids.get(change.id());
+        return id == null ? change : new TaskChange(change.type(), withId(change.task(), id), change.position());
+    }
+
+    private static Task withId(final Task task, final long id) {
+        return new Task(id, task.text(), task.done(), task.createdAt());
+    }
+
+    /** Position of the task with {@code id}, or -1, from an index kept up to date by every mutation. */
+    public synchronized int indexOfId(final long id) {
+        return tasks.indexOfId(id);
+    }
+
+    private void moveTo(final int index, final int position) {
+        final int target = clamp(position, tasks.size() - 1);
+        tasks.move(index, target);
+    }
+
+    private static int clamp(final int position, final int size) {
+        return Math.max(0, Math.min(position, size));
+    }
+
+    private final class OpenView extends AbstractList<Task> implements RandomAccess {
+        @Override
+        public Task get(final int index) {
+            synchronized (TaskList.this) {
+                return tasks.get(tasks.openAt(index));
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (TaskList.this) {
+                return tasks.openCount();
+            }
+        }
+    }
+
+    /**
+     * Fills a list task by task, e.g. from a streaming parser, tracking the highest id on the way.
+     * Tasks are only collected until {@link #build}, which builds the tree in one linear pass.
+     */
+    public static final class Builder {
+        private final List<Task> tasks = new ArrayList<>();
+        private long             maxId;
+
+        private Builder() {}
+
+        public Builder add(@NonNull final Task task) {
+            tasks.add(task);
+            maxId = Math.max(maxId, task.id());
+            return this;
+        }
+
+        public TaskList build() {
+            return new TaskList(new TaskTree(tasks), maxId);
+        }
     }
 }
@@ -0,0 +1,461 @@
+package com.todo.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+
+import static java.util.Objects.checkFromToIndex;
+import static java.util.Objects.checkIndex;
+
+/**
+ * The tasks of a {@link TaskList} as they were at one instant. Snapshots are immutable and can be
+ * read from any thread without locking, however the list changes afterwards. They form a
+ * persistent treap: a change copies only the O(log n) nodes on its path and shares the rest with
+ * the previous snapshot, so publishing one after every change is cheap. Every node counts the
+ * tasks and open tasks below it, so the task at a position and the k-th open task are O(log n).
+ *
+ * <p>Each task also carries an order key, growing in list order, so that {@link TaskTree} can find
+ * a task's position from its key by one descent. Keys are handed out {@link #SPACING} apart and a
+ * task put between two others takes the key halfway; see {@link TaskTree} for when they run out.
+ *
+ * <p>Nodes created from a {@link TaskSource} decode their task on first read; ids and done flags
+ * are read eagerly so that counting and searching by id never decode anything.
+ */
+public final class TaskSnapshot extends AbstractList<Task> implements RandomAccess {
+    /** Gap between the keys of tasks laid out in one go, and past either end of the list. */
+    static final long SPACING = 1L << 32;
+
+    private static final SplittableRandom SEEDS = new SplittableRandom();
+
+    private final TaskSource source;
+    private final Node       root;
+    private final OpenTasks  openView = new OpenTasks();
+
+    private TaskSnapshot(final TaskSource source, final Node root) {
+        this.source = source;
+        this.root   = root;
+    }
+
+    static TaskSnapshot of(final List<Task> tasks) {
+        return new TaskSnapshot(null, new Builder(tasks, null, tasks.size()).build(0, tasks.size(), 0));
+    }
+
+    static TaskSnapshot of(final TaskSource source) {
+        return new TaskSnapshot(source, new Builder(null, source, source.size()).build(0, source.size(), 0));
+    }
+
+    @Override
+    public Task get(final int index) {
+        return task(node(root, checkIndex(index, size())));
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * The tasks from {@code from} up to {@code to}, read in one walk of the tree rather than one
+     * lookup each, and each decoded once. The snapshot never changes, so a copy serves as well as
+     * a view would.
+     */
+    @Override
+    public List<Task> subList(final int from, final int to) {
+        checkFromToIndex(from, to, size());
+        return Collections.unmodifiableList(collect(root, from, to, 0, false, new ArrayList<>(to - from)));
+    }
+
+    /** The open tasks of this snapshot in list order. */
+    public List<Task> openView() {
+        return openView;
+    }
+
+    public int openCount() {
+        return opens(root);
+    }
+
+    public TaskStats stats() {
+        return new TaskStats(size(), size() - opens(root));
+    }
+
+    /** The source this snapshot's unchanged tasks are decoded from, or null if it has none. */
+    public TaskSource source() {
+        return source;
+    }
+
+    /**
+     * Calls {@code action} for every task in list order without decoding any, so a writer can tell
+     * which tasks it still has to read; see {@link EntryConsumer}.
+     */
+    public void forEachEntry(final EntryConsumer action) {
+        forEachEntry(root, 0, action);
+    }
+
+    /**
+     * Receives a task's position, id and done flag, and as {@code origin} its index in
+     * {@link TaskSnapshot#source()} while it is unchanged since read from there, else -1.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int index, long id, boolean done, int origin);
+    }
+
+    /** Scans ids in list order, decoding only the task whose id matches. */
+    @Override
+    public int indexOf(final Object o) {
+        if (!(o instanceof Task task)) return -1;
+        final int index = indexOfId(root, task.id(), 0);
+        return index >= 0 && get(index).equals(task) ? index : -1;
+    }
+
+    long id(final int index) {
+        return node(root, checkIndex(index, size())).id;
+    }
+
+    boolean done(final int index) {
+        return !node(root, checkIndex(index, size())).open;
+    }
+
+    long key(final int index) {
+        return node(root, checkIndex(index, size())).key;
+    }
+
+    /** Position of the task with order key {@code key}, or -1. */
+    int indexOfKey(final long key) {
+        Node t      = root;
+        int  offset = 0;
+        while (t != null) {
+            if (key < t.key) {
+                t = t.left;
+            } else if (key > t.key) {
+                offset += size(t.left) + 1;
+                t       = t.right;
+            } else {
+                return offset + size(t.left);
+            }
+        }
+        return -1;
+    }
+
+    /** Position of the open task with rank {@code k} among open tasks. */
+    int openAt(int k) {
+        checkIndex(k, opens(root));
+        Node t        = root;
+        int  position = 0;
+        while (true) {
+            final int lo = opens(t.left);
+            if (k < lo) {
+                t = t.left;
+            } else if (t.open && k == lo) {
+                return position + size(t.left);
+            } else {
+                k        -= lo + (t.open ? 1 : 0);
+                position += size(t.left) + 1;
+                t         = t.right;
+            }
+        }
+    }
+
+    /** Number of open tasks before {@code index}. */
+    int openRank(int index) {
+        checkIndex(index, size());
+        Node t     = root;
+        int  count = 0;
+        while (true) {
+            final int ls = size(t.left);
+            if (index < ls) {
+                t = t.left;
+            } else if (index == ls) {
+                return count + opens(t.left);
+            } else {
+                count += opens(t.left) + (t.open ? 1 : 0);
+                index -= ls + 1;
+                t      = t.right;
+            }
+        }
+    }
+
+    /** Calls {@code action} with the id and order key of every task, in list order. */
+    void forEachKey(final KeyConsumer action) {
+        forEachKey(root, action);
+    }
+
+    @FunctionalInterface
+    interface KeyConsumer {
+        void accept(long id, long key);
+    }
+
+    TaskSnapshot inserted(final int index, final Task task, final long key) {
+        final Node n = new Node(task, task.id(), key, -1, !task.done(), SEEDS.nextInt(), null, null);
+        final Node[] parts = split(root, index);
+        return new TaskSnapshot(source, merge(merge(parts[0], n), parts[1]));
+    }
+
+    TaskSnapshot removed(final int index) {
+        final Node[] head = split(root, index);
+        final Node[] tail = split(head[1], 1);
+        return new TaskSnapshot(source, merge(head[0], tail[1]));
+    }
+
+    TaskSnapshot replaced(final int index, final Task task) {
+        return new TaskSnapshot(source, replace(root, index, task));
+    }
+
+    /** The task at {@code from} taken out and put back at {@code to}, under the order key {@code key}. */
+    TaskSnapshot moved(final int from, final int to, final long key) {
+        final Node[] head  = split(root, from);
+        final Node[] tail  = split(head[1], 1);
+        final Node[] parts = split(merge(head[0], tail[1]), to);
+        final Node   n     = tail[0];
+        final Node   moved = new Node(n.task, n.id, key, n.origin, n.open, n.priority, null, null);
+        return new TaskSnapshot(source, merge(merge(parts[0], moved), parts[1]));
+    }
+
+    /**
+     * The tasks from {@code from} up to {@code to} given the keys {@code low + step},
+     * {@code low + 2 * step} and so on; {@code step} is unsigned, so a window may span the whole
+     * key range. The nodes are linked anew in linear time, each under its old priority.
+     */
+    TaskSnapshot relabeled(final int from, final int to, final long low, final long step) {
+        checkFromToIndex(from, to, size());
+        final Node[] head   = split(root, from);
+        final Node[] tail   = split(head[1], to - from);
+        final Node[] window = new Node[to - from];
+        collectNodes(tail[0], window, 0);
+        return new TaskSnapshot(source, merge(merge(head[0], relink(window, low, step)), tail[1]));
+    }
+
+    private Task task(final Node n) {
+        Task t = n.task;
+        if (t == null) {
+            // Racing readers may both decode; either result is the same immutable task.
+            t = source.get(n.origin);
+            if (source.retainsDecoded()) n.task = t;
+        }
+        return t;
+    }
+
+    /**
+     * Adds the tasks of {@code t} at positions {@code from} to {@code to} in list order, counting
+     * only open tasks if {@code open}; {@code offset} is the position of the first task in
+     * {@code t}. Subtrees wholly outside the range are skipped.
+     */
+    private List<Task> collect(final Node t, final int from, final int to, final int offset,
+                               final boolean open, final List<Task> out) {
+        if (t == null || to <= offset || from >= offset + (open ? t.opens : t.size)) return out;
+        collect(t.left, from, to, offset, open, out);
+        final int at = offset + (open ? opens(t.left) : size(t.left));
+        if ((t.open || !open) && at >= from && at < to) out.add(task(t));
+        return collect(t.right, from, to, at + (t.open || !open ? 1 : 0), open, out);
+    }
+
+    private static Node node(Node t, int index) {
+        while (true) {
+            final int ls = size(t.left);
+            if (index < ls) {
+                t = t.left;
+            } else if (index == ls) {
+                return t;
+            } else {
+                index -= ls + 1;
+                t      = t.right;
+            }
+        }
+    }
+
+    private static int forEachEntry(final Node t, int index, final EntryConsumer action) {
+        if (t == null) return index;
+        index = forEachEntry(t.left, index, action);
+        action.accept(index, t.id, !t.open, t.origin);
+        return forEachEntry(t.right, index + 1, action);
+    }
+
+    private static void forEachKey(final Node t, final KeyConsumer action) {
+        if (t == null) return;
+        forEachKey(t.left, action);
+        action.accept(t.id, t.key);
+        forEachKey(t.right, action);
+    }
+
+    private static int collectNodes(final Node t, final Node[] out, int at) {
+        if (t == null) return at;
+        at = collectNodes(t.left, out, at);
+        out[at++] = t;
+        return collectNodes(t.right, out, at);
+    }
+
+    /**
+     * Links {@code nodes}, in list order, into a treap with the same priorities, keyed
+     * {@code low + step * (i + 1)}. A stack of the right spine finds every node's children in
+     * one pass; the immutable nodes are then made bottom-up.
+     */
+    private static Node relink(final Node[] nodes, final long low, final long step) {
+        final int   count = nodes.length;
+        final int[] left  = new int[count];
+        final int[] right = new int[count];
+        final int[] spine = new int[count];
+        int         depth = 0;
+        for (int i = 0; i < count; i++) {
+            int last = -1;
+            while (depth > 0 && nodes[spine[depth - 1]].priority < nodes[i].priority) last = spine[--depth];
+            left[i]  = last;
+            right[i] = -1;
+            if (depth > 0) right[spine[depth - 1]] = i;
+            spine[depth++] = i;
+        }
+        return depth == 0 ? null : relinked(nodes, left, right, spine[0], low, step);
+    }
+
+    private static Node relinked(final Node[] nodes, final int[] left, final int[] right, final int i,
+                                 final long low, final long step) {
+        if (i < 0) return null;
+        final Node n = nodes[i];
+        return new Node(n.task, n.id, low + step * (i + 1), n.origin, n.open, n.priority,
+                relinked(nodes, left, right, left[i], low, step),
+                relinked(nodes, left, right, right[i], low, step));
+    }
+
+    private static int indexOfId(final Node t, final long id, final int offset) {
+        if (t == null) return -1;
+        final int before = indexOfId(t.left, id, offset);
+        if (before >= 0) return before;
+        if (t.id == id) return offset + size(t.left);
+        return indexOfId(t.right, id, offset + size(t.left) + 1);
+    }
+
+    private static Node replace(final Node t, final int index, final Task task) {
+        final int ls = size(t.left);
+        if (index < ls) return t.with(replace(t.left, index, task), t.right);
+        if (index > ls) return t.with(t.left, replace(t.right, index - ls - 1, task));
+        return new Node(task, task.id(), t.key, -1, !task.done(), t.priority, t.left, t.right);
+    }
+
+    /** Splits {@code t} into its first {@code k} tasks and the rest, copying only the nodes on the path. */
+    private static Node[] split(final Node t, final int k) {
+        if (t == null) return new Node[2];
+        final int ls = size(t.left);
+        if (ls < k) {
+            final Node[] parts = split(t.right, k - ls - 1);
+            parts[0] = t.with(t.left, parts[0]);
+            return parts;
+        }
+        final Node[] parts = split(t.left, k);
+        parts[1] = t.with(parts[1], t.right);
+        return parts;
+    }
+
+    private static Node merge(final Node a, final Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.priority > b.priority
+                ? a.with(a.left, merge(a.right, b))
+                : b.with(merge(a, b.left), b.right);
+    }
+
+    private static int size(final Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static int opens(final Node t) {
+        return t == null ? 0 : t.opens;
+    }
+
+    /**
+     * Links tasks already in list order into a balanced tree in linear time. Random priorities are
+     * handed out largest first, level by level, so every parent outranks its children and later
+     * changes keep the tree balanced as if each task had been inserted one by one.
+     */
+    private static final class Builder {
+        private final List<Task> tasks;
+        private final TaskSource source;
+        private final int[]      priorities;
+        private final int[]      taken = new int[32];
+
+        Builder(final List<Task> tasks, final TaskSource source, final int size) {
+            this.tasks  = tasks;
+            this.source = source;
+            final int[] sorted = SEEDS.ints(size).sorted().toArray();
+            priorities = new int[size];
+            for (int i = 0; i < size; i++) priorities[i] = sorted[size - 1 - i];
+        }
+
+        Node build(final int from, final int to, final int depth) {
+            if (from >= to) return null;
+            final int  mid      = (from + to) >>> 1;
+            final int  priority = priorities[Math.min(priorities.length - 1, (1 << depth) - 1 + taken[depth]++)];
+            final Node left     = build(from, mid, depth + 1);
+            final Node right    = build(mid + 1, to, depth + 1);
+            final long key      = mid * SPACING;
+            if (tasks != null) {
+                final Task task = tasks.get(mid);
+                return new Node(task, task.id(), key, -1, !task.done(), priority, left, right);
+            }
+            return new Node(null, source.id(mid), key, mid, !source.done(mid), priority, left, right);
+        }
+    }
+
+    private final class OpenTasks extends AbstractList<Task> implements RandomAccess {
+        @Override
+        public Task get(int k) {
+            checkIndex(k, opens(root));
+            Node t = root;
+            while (true) {
+                final int lo = opens(t.left);
+                if (k < lo) {
+                    t = t.left;
+                } else if (t.open && k == lo) {
+                    return task(t);
+                } else {
+                    k -= lo + (t.open ? 1 : 0);
+                    t  = t.right;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return opens(root);
+        }
+
+        @Override
+        public List<Task> subList(final int from, final int to) {
+            checkFromToIndex(from, to, size());
+            return Collections.unmodifiableList(collect(root, from, to, 0, true, new ArrayList<>(to - from)));
+        }
+    }
+
+    private static final class Node {
+        final long    id;
+        final long    key;
+        final int     origin;
+        final boolean open;
+        final int     priority;
+        final Node    left;
+        final Node    right;
+        final int     size;
+        final int     opens;
+        Task          task;
+
+        Node(final Task task, final long id, final long key, final int origin, final boolean open,
+             final int priority, final Node left, final Node right) {
+            this.task     = task;
+            this.id       = id;
+            this.key      = key;
+            this.origin   = origin;
+            this.open     = open;
+            this.priority = priority;
+            this.left     = left;
+            this.right    = right;
+            this.size     = size(left) + size(right) + 1;
+            this.opens    = opens(left) + opens(right) + (open ? 1 : 0);
+        }
+
+        /** A copy with other children; the task, once decoded, carries over. */
+        Node with(final Node left, final Node right) {
+            return new Node(task, id, key, origin, open, priority, left, right);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.todo.model;
+
+/**
+ * Read-only, position-indexed tasks that can answer {@code id} and {@code done} without
+ * materializing the whole {@link Task}, e.g. a binary snapshot that decodes text on demand.
+ */
+public interface TaskSource {
+    int size();
+
+    long id(int index);
+
+    boolean done(int index);
+
+    Task get(int index);
+
+    /**
+     * Whether a list backed by this source should keep tasks once decoded. Sources that decode
+     * cheaply from a compact form return false, so that reading a task never grows the heap.
+     */
+    default boolean retainsDecoded() {
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package com.todo.model;
+
+/**
+ * Counts over a {@link TaskSnapshot}, read from the aggregates its tree keeps in every node, so
+ * obtaining them is O(1). Further aggregates belong here, fed the same way.
+ */
+public record TaskStats(int total, int done) {
+    public int open() {
+        return total - done;
+    }
+}
@@ -0,0 +1,234 @@
+package com.todo.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static java.util.Objects.checkIndex;
+
+/**
+ * Mutable backing list for {@link TaskList}. The tasks live in a single persistent
+ * {@link TaskSnapshot}; every change swaps in the new snapshot, which readers on other threads can
+ * hold on to, so reading, inserting, removing or moving the task at a position and finding the
+ * k-th open task are all O(log n) and nothing shifts. When created over a {@link TaskSource},
+ * tasks are decoded on first read.
+ *
+ * <p>To find a task's position by id, an id-to-key index, built on first use, gives the task's
+ * order key, and one descent of the snapshot by key gives its position; the key stays with the
+ * task however others move around it. A task added or moved between two others takes the key
+ * halfway between theirs; when two neighbours' keys have no room left, the keys of a window
+ * around them are spread out again, the window doubling until it has room. The search indexes,
+ * {@link WordIndex} and {@link TrigramIndex}, are also built on first use and then follow every
+ * change.
+ */
+final class TaskTree extends AbstractList<Task> implements RandomAccess {
+    /** Least gap between spread-out keys, so that many insertions fit before the next spreading. */
+    private static final long MIN_GAP = 1L << 16;
+
+    private TaskSnapshot snapshot;
+    private LongLongMap  keys;
+    private WordIndex    words;
+    private TrigramIndex trigrams;
+
+    TaskTree(final List<Task> tasks) {
+        this.snapshot = TaskSnapshot.of(tasks);
+    }
+
+    TaskTree(final TaskSource source) {
+        this.snapshot = TaskSnapshot.of(source);
+    }
+
+    long id(final int index) {
+        return snapshot.id(index);
+    }
+
+    boolean done(final int index) {
+        return snapshot.done(index);
+    }
+
+    @Override
+    public Task get(final int index) {
+        return snapshot.get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    /** Position of the task with {@code id}, or -1. */
+    int indexOfId(final long id) {
+        if (keys == null) {
+            keys = new LongLongMap(size());
+            snapshot.forEachKey(keys::put);
+        }
+        final long key = keys.get(id);
+        return key == LongLongMap.MISSING ? -1 : snapshot.indexOfKey(key);
+    }
+
+    /** Up to {@code limit} tasks matching {@code query}, see {@link WordIndex#search}; done ones only if asked for. */
+    List<Task> search(final String query, final int limit, final boolean includeDone) {
+        if (words == null) {
+            words = new WordIndex();
+            for (final Task task : snapshot) words.add(task);
+        }
+        return words.search(query, limit, id -> find(id, includeDone));
+    }
+
+    /** Up to {@code limit} tasks most like {@code query}, see {@link TrigramIndex#search}; done ones only if asked for. */
+    List<Task> fuzzySearch(final String query, final int limit, final boolean includeDone) {
+        if (trigrams == null) {
+            trigrams = new TrigramIndex();
+            for (final Task task : snapshot) trigrams.add(task);
+        }
+        return trigrams.search(query, limit, id -> find(id, includeDone));
+    }
+
+    /** The current contents as an immutable snapshot. */
+    TaskSnapshot snapshot() {
+        return snapshot;
+    }
+
+    int openCount() {
+        return snapshot.openCount();
+    }
+
+    /** Position of the open task with rank {@code k} among open tasks. */
+    int openAt(final int k) {
+        return snapshot.openAt(k);
+    }
+
+    /** Number of open tasks before {@code index}. */
+    int openRank(final int index) {
+        return snapshot.openRank(index);
+    }
+
+    @Override
+    public Task set(final int index, final Task task) {
+        final Task old = get(index);
+        if (keys != null && old.id() != task.id()) {
+            keys.remove(old.id());
+            keys.put(task.id(), snapshot.key(index));
+        }
+        if (old.id() != task.id() || !old.text().equals(task.text())) reindex(old, task);
+        snapshot = snapshot.replaced(index, task);
+        return old;
+    }
+
+    /** Moves the task at {@code from} so that it ends up at {@code to}, in O(log n). */
+    void move(final int from, final int to) {
+        checkIndex(from, size());
+        checkIndex(to, size());
+        if (from == to) return;
+        final long key = keyAt(to < from ? to : to + 1);
+        snapshot = snapshot.moved(from, to, key);
+        if (keys != null) keys.put(snapshot.id(to), key);
+        modCount++;
+    }
+
+    @Override
+    public void add(final int index, final Task task) {
+        checkIndex(index, size() + 1);
+        final long key = keyAt(index);
+        snapshot = snapshot.inserted(index, task, key);
+        if (keys != null) keys.put(task.id(), key);
+        reindex(null, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(final int index) {
+        final Task old = get(index);
+        snapshot = snapshot.removed(index);
+        if (keys != null) keys.remove(old.id());
+        reindex(old, null);
+        modCount++;
+        return old;
+    }
+
+    /** Replaces the contents with {@code base}; the source, if any, is no longer consulted. */
+    void reset(final List<Task> base) {
+        snapshot = TaskSnapshot.of(base);
+        keys     = null;
+        words    = null;
+        trigrams = null;
+        modCount++;
+    }
+
+    /** Finds the task by id, then compares the whole task there, so a lookup decodes at most one task. */
+    @Override
+    public int indexOf(final Object o) {
+        if (!(o instanceof Task task)) return -1;
+        final int index = indexOfId(task.id());
+        return index >= 0 && get(index).equals(task) ? index : -1;
+    }
+
+    /** The task with {@code id}, or null if it is missing or done and {@code includeDone} is not set. */
+    private Task find(final long id, final boolean includeDone) {
+        final int index = indexOfId(id);
+        return index < 0 || !includeDone && done(index) ? null : get(index);
+    }
+
+    /**
+     * An order key between the tasks at {@code gap - 1} and {@code gap}, spreading the keys around
+     * the gap first if the two are adjacent. Past either end of the list keys step by
+     * {@link TaskSnapshot#SPACING}, so appending never halves the room that is left.
+     */
+    private long keyAt(final int gap) {
+        final int size = size();
+        if (size == 0) return 0;
+        if (gap == 0 && snapshot.key(0) > Long.MIN_VALUE + TaskSnapshot.SPACING) {
+            return snapshot.key(0) - TaskSnapshot.SPACING;
+        }
+        if (gap == size && snapshot.key(size - 1) < Long.MAX_VALUE - TaskSnapshot.SPACING) {
+            return snapshot.key(size - 1) + TaskSnapshot.SPACING;
+        }
+        if (Long.compareUnsigned(high(gap) - low(gap), 2) < 0) spread(gap);
+        final long low = low(gap);
+        return low + ((high(gap) - low) >>> 1);
+    }
+
+    /**
+     * Gives the tasks of a window around {@code gap} evenly spaced keys between those of its
+     * neighbours, doubling the window until each gap is at least {@link #MIN_GAP} or the window
+     * is the whole list, whose keys can then span all of {@code long}.
+     */
+    private void spread(final int gap) {
+        final int size = size();
+        for (int half = 32; ; half = (int) Math.min((long) half * 2, size)) {
+            final int  from = Math.max(0, gap - half);
+            final int  to   = Math.min(size, gap + half);
+            final long low  = low(from);
+            final long step = Long.divideUnsigned(high(to) - low, to - from + 1);
+            if (Long.compareUnsigned(step, MIN_GAP) >= 0 || from == 0 && to == size) {
+                snapshot = snapshot.relabeled(from, to, low, step);
+                if (keys != null) {
+                    for (int i = from; i < to; i++) keys.put(snapshot.id(i), snapshot.key(i));
+                }
+                return;
+            }
+        }
+    }
+
+    /** The key of the task just before {@code gap}, or the least key if there is none. */
+    private long low(final int gap) {
+        return gap == 0 ? Long.MIN_VALUE : snapshot.key(gap - 1);
+    }
+
+    /** The key of the task at {@code gap}, or the greatest key if there is none. */
+    private long high(final int gap) {
+        return gap == size() ? Long.MAX_VALUE : snapshot.key(gap);
+    }
+
+    /** Moves the search indexes built so far from {@code old} to {@code task}; either may be null. */
+    private void reindex(final Task old, final Task task) {
+        if (words != null) {
+            if (old != null) words.remove(old);
+            if (task != null) words.add(task);
+        }
+        if (trigrams != null) {
+            if (old != null) trigrams.remove(old);
+            if (task != null) trigrams.add(task);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.todo.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongFunction;
+
+/**
+ * Trigram index for fuzzy search over task texts, kept up to date task by task. Every word, in
+ * lower case and padded with a space on each side, contributes its three-character windows, so
+ * "mjölk" gives " mj", "mjö", "jöl", "ölk" and "lk ". Tasks are ranked by how many distinct
+ * trigrams they share with the query, which tolerates partial words and typos alike.
+ *
+ * <p>Trigrams are packed into a {@code long} and found through a {@link LongLongMap}. Each keeps
+ * the ids of its tasks ascending in blocks of delta-encoded varints, so an id mostly takes one or
+ * two bytes, and adding or removing one rewrites a single block of at most {@value Postings#BLOCK}.
+ */
+final class TrigramIndex {
+    private final LongLongMap    slots    = new LongLongMap(1024);
+    private final List<Postings> postings = new ArrayList<>();
+    // Slots of trigrams no task has any more, handed out again before the list grows.
+    private int[]                free     = new int[16];
+    private int                  freeCount;
+
+    void add(final Task task) {
+        for (final long gram : trigrams(task.text())) {
+            final long found = slots.get(gram);
+            int        slot  = (int) found;
+            if (found == LongLongMap.MISSING) {
+                if (freeCount > 0) {
+                    slot = free[--freeCount];
+                    postings.set(slot, new Postings());
+                } else {
+                    slot = postings.size();
+                    postings.add(new Postings());
+                }
+                slots.put(gram, slot);
+            }
+            postings.get(slot).add(task.id());
+        }
+    }
+
+    void remove(final Task task) {
+        for (final long gram : trigrams(task.text())) {
+            final long found = slots.get(gram);
+            if (found == LongLongMap.MISSING) continue;
+            final int      slot = (int) found;
+            final Postings list = postings.get(slot);
+            list.remove(task.id());
+            if (list.size == 0) {
+                slots.remove(gram);
+                postings.set(slot, null);
+                if (freeCount == free.length) free = Arrays.copyOf(free, 2 * freeCount);
+                free[freeCount++] = slot;
+            }
+        }
+    }
+
+    /** Number of distinct trigrams with at least one task. */
+    int trigramCount() {
+        return slots.size();
+    }
+
+    /** Number of posting slots, in use or free. */
+    int slotCount() {
+        return postings.size();
+    }
+
+    /**
+     * Up to {@code limit} tasks sharing the most trigrams with {@code query}, and at least a third
+     * of them, newest first among equals. Keeps the best so far and, as in MaxScore, only walks
+     * the shortest lists: the longest lists, too few to lift a task that is in none of the others
+     * into the result on their own, are just probed by skipping ahead to the tasks the short ones
+     * turn up. Once the best reach the query's length, only the rarest trigram is walked.
+     *
+     * @param tasks the task with an id, or null to leave it out of the result
+     */
+    List<Task> search(final String query, final int limit, final LongFunction<Task> tasks) {
+        final long[] grams = trigrams(query);
+        if (grams.length == 0 || limit <= 0) return List.of();
+        final List<Cursor> lists = new ArrayList<>();
+        for (final long gram : grams) {
+            final long found = slots.get(gram);
+            if (found == LongLongMap.MISSING) continue;
+            final Cursor cursor = new Cursor(postings.get((int) found));
+            if (cursor.advance()) lists.add(cursor);
+        }
+        lists.sort(Comparator.comparingInt((Cursor c) -> c.postings.size).reversed());
+        final Cursor[] cursors = lists.toArray(new Cursor[0]);
+
+        final PriorityQueue<Hit> best   = new PriorityQueue<>();
+        final int                least  = Math.max(1, (grams.length + 2) / 3);
+        int                      needed = least;
+        while (needed - 1 < cursors.length) {
+            // Lists before `walked` are the longest, too few to reach `needed` between them.
+            final int walked = needed - 1;
+            long id = Long.MAX_VALUE;
+            for (int c = walked; c < cursors.length; c++) {
+                if (!cursors[c].done) id = Math.min(id, cursors[c].id);
+            }
+            if (id == Long.MAX_VALUE) break;
+            int score = 0;
+            for (int c = walked; c < cursors.length; c++) {
+                if (!cursors[c].done && cursors[c].id == id) {
+                    score++;
+                    cursors[c].advance();
+                }
+            }
+            for (int c = walked - 1; c >= 0 && score + c + 1 >= needed; c--) {
+                if (cursors[c].skipTo(id) && cursors[c].id == id) score++;
+            }
+            if (score < needed) continue;
+            final Task task = tasks.apply(id);
+            if (task == null) continue;
+            best.add(new Hit(score, id, task));
+            if (best.size() > limit) best.poll();
+            if (best.size() == limit) needed = Math.max(least, best.peek().score);
+        }
+        final List<Task> found = new ArrayList<>(best.size());
+        while (!best.isEmpty()) found.add(best.poll().task);
+        return found.reversed();
+    }
+
+    /** The distinct trigrams of {@code text}, packed and sorted. */
+    static long[] trigrams(final String text) {
+        long[] grams = new long[16];
+        int    count = 0;
+        for (final String word : WordIndex.words(text)) {
+            final String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                if (count == grams.length) grams = Arrays.copyOf(grams, count * 2);
+                grams[count++] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /** A task in the result so far; the worst, and among equals the oldest, sorts first. */
+    private record Hit(int score, long id, Task task) implements Comparable<Hit> {
+        @Override
+        public int compareTo(final Hit other) {
+            return score != other.score ? Integer.compare(score, other.score) : Long.compare(id, other.id);
+        }
+    }
+
+    /** Ids of the tasks containing one trigram, ascending, in blocks sorted by their first id. */
+    private static final class Postings {
+        static final int BLOCK = 128;
+
+        private Block[] blocks = new Block[0];
+        private int     size;
+
+        void add(final long id) {
+            final Block last = blocks.length == 0 ? null : blocks[blocks.length - 1];
+            if (last != null && id > last.last && last.count < BLOCK) {
+                last.append(id);
+                size++;
+            } else if (last == null || id > last.last) {
+                blocks = Arrays.copyOf(blocks, blocks.length + 1);
+                blocks[blocks.length - 1] = Block.of(new long[] {id}, 1);
+                size++;
+            } else {
+                final int    b   = find(id);
+                final long[] ids = blocks[b].decode();
+                int          i   = Arrays.binarySearch(ids, id);
+                if (i >= 0) return;
+                i = -i - 1;
+                size++;
+                final long[] grown = new long[ids.length + 1];
+                System.arraycopy(ids, 0, grown, 0, i);
+                grown[i] = id;
+                System.arraycopy(ids, i, grown, i + 1, ids.length - i);
+                if (grown.length <= BLOCK) {
+                    blocks[b] = Block.of(grown, grown.length);
+                } else {
+                    final int half = grown.length / 2;
+                    final Block[] split = new Block[blocks.length + 1];
+                    System.arraycopy(blocks, 0, split, 0, b);
+                    split[b]     = Block.of(grown, half);
+                    split[b + 1] = Block.of(Arrays.copyOfRange(grown, half, grown.length), grown.length - half);
+                    System.arraycopy(blocks, b + 1, split, b + 2, blocks.length - b - 1);
+                    blocks = split;
+                }
+            }
+        }
+
+        void remove(final long id) {
+            if (blocks.length == 0) return;
+            final int    b   = find(id);
+            final long[] ids = blocks[b].decode();
+            final int    i   = Arrays.binarySearch(ids, id);
+            if (i < 0) return;
+            size--;
+            if (ids.length == 1) {
+                final Block[] shrunk = new Block[blocks.length - 1];
+                System.arraycopy(blocks, 0, shrunk, 0, b);
+                System.arraycopy(blocks, b + 1, shrunk, b, blocks.length - b - 1);
+                blocks = shrunk;
+                return;
+            }
+            final long[] kept = new long[ids.length - 1];
+            System.arraycopy(ids, 0, kept, 0, i);
+            System.arraycopy(ids, i + 1, kept, i, ids.length - i - 1);
+            blocks[b] = Block.of(kept, kept.length);
+        }
+
+        /** The last block starting at or before {@code id}, or the first block. */
+        private int find(final long id) {
+            int lo = 0;
+            int hi = blocks.length - 1;
+            while (lo < hi) {
+                final int mid = (lo + hi + 1) >>> 1;
+                if (blocks[mid].first <= id) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+
+    /** Up to {@link Postings#BLOCK} ascending ids: the first as is, the rest as varint gaps. */
+    private static final class Block {
+        final long first;
+        long       last;
+        int        count;
+        byte[]     data;
+        int        length;
+
+        private Block(final long first) {
+            this.first = first;
+            this.last  = first;
+            this.count = 1;
+            this.data  = new byte[4];
+        }
+
+        static Block of(final long[] ids, final int count) {
+            final Block block = new Block(ids[0]);
+            for (int i = 1; i < count; i++) block.append(ids[i]);
+            return block;
+        }
+
+        void append(final long id) {
+            long gap = id - last;
+            if (length + 10 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            while (gap >= 0x80) {
+                data[length++] = (byte) (gap | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            last = id;
+            count++;
+        }
+
+        long[] decode() {
+            final long[] ids = new long[count];
+            ids[0] = first;
+            int offset = 0;
+            for (int i = 1; i < count; i++) {
+                long gap   = 0;
+                int  shift = 0;
+                byte b;
+                do {
+                    b      = data[offset++];
+                    gap   |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                ids[i] = ids[i - 1] + gap;
+            }
+            return ids;
+        }
+    }
+
+    /** Walks one trigram's ids in ascending order. */
+    private static final class Cursor {
+        private final Postings postings;
+        private int            block = -1;
+        private int            offset;
+        private int            left;
+        long                   id;
+        boolean                done;
+
+        Cursor(final Postings postings) {
+            this.postings = postings;
+        }
+
+        /** Moves to the next id; false, and done, past the last. */
+        boolean advance() {
+            if (done) return false;
+            if (left == 0) return enter(block + 1);
+            final byte[] data  = postings.blocks[block].data;
+            long         gap   = 0;
+            int          shift = 0;
+            byte         b;
+            do {
+                b      = data[offset++];
+                gap   |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += gap;
+            left--;
+            return true;
+        }
+
+        /** Moves to the first id not below {@code target}, passing whole blocks by their first id. */
+        boolean skipTo(final long target) {
+            if (done) return false;
+            if (id >= target) return true;
+            int next = block + 1;
+            while (next < postings.blocks.length && postings.blocks[next].first <= target) next++;
+            if (next - 1 > block && !enter(next - 1)) return false;
+            while (id < target) {
+                if (!advance()) return false;
+            }
+            return true;
+        }
+
+        private boolean enter(final int b) {
+            if (b >= postings.blocks.length) {
+                done = true;
+                return false;
+            }
+            final Block first = postings.blocks[b];
+            block  = b;
+            id     = first.first;
+            offset = 0;
+            left   = first.count - 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.todo.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+/**
+ * Inverted index from the words of task texts to the ids of the tasks that contain them, kept up
+ * to date task by task. Words are runs of letters and digits, compared in lower case. Each word
+ * keeps its ids sorted, so a query walks the shortest list and checks the others by binary
+ * search, newest task first, and stops as soon as it has enough matches; the size of the list
+ * hardly matters.
+ */
+final class WordIndex {
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+
+    void add(final Task task) {
+        for (final String word : words(task.text())) words.computeIfAbsent(word, w -> new Postings()).add(task.id());
+    }
+
+    void remove(final Task task) {
+        for (final String word : words(task.text())) {
+            final Postings postings = words.get(word);
+            if (postings != null && postings.remove(task.id()) && postings.size == 0) words.remove(word);
+        }
+    }
+
+    /**
+     * Up to {@code limit} tasks containing every word of {@code query}. The last word counts as
+     * typed so far unless the query ends in a separator: tasks where it is a whole word come
+     * first, then tasks with a word that starts with it, newest first within each group.
+     *
+     * @param tasks the task with an id, or null to leave it out of the result
+     */
+    List<Task> search(final String query, final int limit, final LongFunction<Task> tasks) {
+        final List<String> terms = new ArrayList<>(words(query));
+        if (terms.isEmpty() || limit <= 0) return List.of();
+        final String prefix = Character.isLetterOrDigit(query.charAt(query.length() - 1)) ? terms.getLast() : null;
+        if (prefix != null) terms.removeLast();
+
+        final List<Postings> whole = new ArrayList<>();
+        for (final String term : terms) {
+            final Postings postings = words.get(term);
+            if (postings == null) return List.of();
+            whole.add(postings);
+        }
+        final List<Task> found = new ArrayList<>();
+        final Set<Long>  seen  = new HashSet<>();
+        final Postings   exact = prefix == null ? null : words.get(prefix);
+        if (prefix == null || exact != null) {
+            final List<Postings> all = new ArrayList<>(whole);
+            if (exact != null) all.add(exact);
+            collect(all, limit, tasks, found, seen, null);
+        }
+        if (prefix != null && found.size() < limit) {
+            final List<Postings> started = new ArrayList<>(words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+            final long startedCount = started.stream().mapToLong(p -> p.size).sum();
+            if (!whole.isEmpty() && smallest(whole).size < startedCount) {
+                collect(whole, limit, tasks, found, seen, prefix);
+            } else {
+                merge(started, whole, limit, tasks, found, seen);
+            }
+        }
+        return found;
+    }
+
+    /** The distinct words of {@code text}, in lower case, in order of first appearance. */
+    static Set<String> words(final String text) {
+        final Set<String> words = new LinkedHashSet<>();
+        final String      lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            final boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Walks the shortest of {@code lists} newest first, keeping ids found in all of them and, when
+     * {@code prefix} is set, whose text has a word starting with it.
+     */
+    private static void collect(final List<Postings> lists, final int limit, final LongFunction<Task> tasks,
+                                final List<Task> found, final Set<Long> seen, final String prefix) {
+        final Postings driver = smallest(lists);
+        for (int i = driver.size - 1; i >= 0 && found.size() < limit; i--) {
+            final long id = driver.ids[i];
+            if (seen.contains(id) || !inAll(lists, id)) continue;
+            final Task task = tasks.apply(id);
+            if (task == null || prefix != null && !startsWord(task.text(), prefix)) continue;
+            seen.add(id);
+            found.add(task);
+        }
+    }
+
+    /** Merges {@code started} newest first, keeping ids that are also in every one of {@code whole}. */
+    private static void merge(final List<Postings> started, final List<Postings> whole, final int limit,
+                              final LongFunction<Task> tasks, final List<Task> found, final Set<Long> seen) {
+        final PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, started.size()),
+                Comparator.comparingLong((int[] h) -> started.get(h[0]).ids[h[1]]).reversed());
+        for (int p = 0; p < started.size(); p++) heads.add(new int[] {p, started.get(p).size - 1});
+        long previous = Long.MIN_VALUE;
+        while (!heads.isEmpty() && found.size() < limit) {
+            final int[] head = heads.poll();
+            final long  id   = started.get(head[0]).ids[head[1]];
+            if (--head[1] >= 0) heads.add(head);
+            if (id == previous) continue;
+            previous = id;
+            if (seen.contains(id) || !inAll(whole, id)) continue;
+            final Task task = tasks.apply(id);
+            if (task == null) continue;
+            seen.add(id);
+            found.add(task);
+        }
+    }
+
+    private static boolean inAll(final List<Postings> lists, final long id) {
+        for (final Postings postings : lists) {
+            if (!postings.contains(id)) return false;
+        }
+        return true;
+    }
+
+    private static Postings smallest(final List<Postings> lists) {
+        return lists.stream().min(Comparator.comparingInt(p -> p.size)).orElseThrow();
+    }
+
+    private static boolean startsWord(final String text, final String prefix) {
+        for (final String word : words(text)) {
+            if (word.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /** Ids of the tasks containing one word, sorted ascending. */
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int    size;
+
+        void add(final long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+                ids[size++] = id;
+                return;
+            }
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        boolean remove(final long id) {
+            final int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return false;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(final long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
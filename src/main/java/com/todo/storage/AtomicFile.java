@@ -0,0 +1,73 @@
+package com.todo.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/** File writes that honour a {@link Durability} level. */
+final class AtomicFile {
+
+    @FunctionalInterface
+    interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    private AtomicFile() {}
+
+    /**
+     * Replaces {@code target} with what {@code body} writes. From {@link Durability#FLUSH} on, the
+     * content goes to a sibling temporary file that is renamed over the target once complete.
+     */
+    static void write(final Path target, final Durability durability, final ChannelWriter body) throws IOException {
+        if (durability == Durability.NONE) {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                body.write(channel);
+            }
+            return;
+        }
+        final Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                body.write(channel);
+                if (durability == Durability.FSYNC) channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (durability == Durability.FSYNC) syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Appends {@code bytes} with a single write, forcing them to disk under {@link Durability#FSYNC},
+     * and returns the file size afterwards.
+     */
+    static long append(final Path file, final byte[] bytes, final Durability durability) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, ByteBuffer.wrap(bytes));
+            if (durability == Durability.FSYNC) channel.force(false);
+            return channel.position();
+        }
+    }
+
+    static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /** Makes a rename durable. Not every platform can open a directory; there this is a no-op. */
+    private static void syncDirectory(final Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // e.g. Windows, where the rename itself is already durable
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import com.todo.model.TaskSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static java.util.Objects.checkIndex;
+
+/**
+ * Binary task snapshot, read into memory in one go and decoded lazily: opening it only checks the
+ * header, and task text is decoded when a task is first read. The file is not kept open or mapped,
+ * since a mapped file can be neither replaced nor deleted on Windows.
+ *
+ * <pre>
+ * header   magic:int  version:int  count:int  reserved:int
+ * record   id:long  epochSecond:long  nano:int  textOffset:int  textLength:int  flags:byte  pad:3
+ * text     UTF-8 bytes of every task, textOffset relative to the start of this region
+ * </pre>
+ */
+final class BinarySnapshot implements TaskSource {
+    private static final int MAGIC       = 0x544F444F; // "TODO"
+    private static final int VERSION     = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int FLAG_DONE   = 1;
+
+    private final ByteBuffer buffer;
+    private final int        count;
+    private final int        textStart;
+
+    private BinarySnapshot(final ByteBuffer buffer, final int count) {
+        this.buffer    = buffer;
+        this.count     = count;
+        this.textStart = HEADER_SIZE + count * RECORD_SIZE;
+    }
+
+    static BinarySnapshot read(final Path file) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a task snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported snapshot version " + buffer.getInt(4));
+        }
+        final int count = buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE > buffer.limit()) {
+            throw new IOException("truncated snapshot");
+        }
+        // Checked up front, so that a damaged file fails here rather than on some later read.
+        final long textStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+        for (int i = 0; i < count; i++) {
+            final int at     = HEADER_SIZE + i * RECORD_SIZE;
+            final int offset = buffer.getInt(at + 20);
+            final int length = buffer.getInt(at + 24);
+            if (offset < 0 || length < 0 || textStart + offset + length > buffer.limit()) {
+                throw new IOException("task " + i + " has its text outside the snapshot");
+            }
+        }
+        return new BinarySnapshot(buffer, count);
+    }
+
+    /** Writes {@code tasks} to {@code file}, replacing it atomically unless {@code durability} is {@link Durability#NONE}. */
+    static void write(final Path file, final List<Task> tasks, final Durability durability) throws IOException {
+        final ByteBuffer            table = ByteBuffer.allocate(HEADER_SIZE + tasks.size() * RECORD_SIZE);
+        final ByteArrayOutputStream text  = new ByteArrayOutputStream();
+        table.putInt(MAGIC).putInt(VERSION).putInt(tasks.size()).putInt(0);
+        for (final Task t : tasks) {
+            final byte[] bytes = t.text().getBytes(StandardCharsets.UTF_8);
+            table.putLong(t.id())
+                 .putLong(t.createdAt().toEpochSecond(ZoneOffset.UTC))
+                 .putInt(t.createdAt().getNano())
+                 .putInt(text.size())
+                 .putInt(bytes.length)
+                 .put((byte) (t.done() ? FLAG_DONE : 0))
+                 .put(new byte[3]);
+            text.write(bytes);
+        }
+        table.flip();
+
+        AtomicFile.write(file, durability, channel -> {
+            AtomicFile.writeFully(channel, table);
+            AtomicFile.writeFully(channel, ByteBuffer.wrap(text.toByteArray()));
+        });
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public long id(final int index) {
+        return buffer.getLong(record(index));
+    }
+
+    @Override
+    public boolean done(final int index) {
+        return (buffer.get(record(index) + 28) & FLAG_DONE) != 0;
+    }
+
+    @Override
+    public Task get(final int index) {
+        final int    at    = record(index);
+        final byte[] bytes = new byte[buffer.getInt(at + 24)];
+        buffer.get(textStart + buffer.getInt(at + 20), bytes);
+        return new Task(
+                buffer.getLong(at),
+                new String(bytes, StandardCharsets.UTF_8),
+                done(index),
+                LocalDateTime.ofEpochSecond(buffer.getLong(at + 8), buffer.getInt(at + 16), ZoneOffset.UTC));
+    }
+
+    private int record(final int index) {
+        return HEADER_SIZE + checkIndex(index, count) * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,156 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of deleted tasks as newline-delimited JSON. Each delete, or bulk delete, is one append to
+ * the active segment {@code deleted.ndjson}; once that grows past the segment size it is
+ * gzip-compressed into {@code deleted-NNNNNN.ndjson.gz} and a fresh active segment is started. The {@code deleted.json}
+ * array written by earlier versions becomes segment 0 on the first append. Once segment 0 exists a
+ * leftover {@code deleted.json} is ignored: the migration was cut short after copying it.
+ */
+class DeletedArchive {
+    private static final Pattern CLOSED = Pattern.compile("deleted-(\\d{6})\\.ndjson\\.gz");
+
+    private final Path       dir;
+    private final Path       active;
+    private final Path       legacy;
+    private final long       segmentBytes;
+    private final Durability durability;
+
+    DeletedArchive(final Path dir, final long segmentBytes, final Durability durability) {
+        this.dir          = dir;
+        this.active       = dir.resolve("deleted.ndjson");
+        this.legacy       = dir.resolve("deleted.json");
+        this.segmentBytes = segmentBytes;
+        this.durability   = durability;
+    }
+
+    void append(final Task task) throws IOException {
+        append(List.of(task));
+    }
+
+    /** Appends {@code tasks} in one write, e.g. everything a bulk delete removed. */
+    void append(final List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) return;
+        Files.createDirectories(dir);
+        if (Files.exists(legacy)) migrateLegacy();
+        final ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (final Task task : tasks) lines.write(TaskJsonCodec.encodeLine(task));
+        byte[] line = lines.toByteArray();
+        // Read from disk every time: another process appending under the same lock grows it too.
+        if (Files.exists(active) && Files.size(active) > 0 && !endsWithNewline()) line = prefixNewline(line);
+        if (AtomicFile.append(active, line, durability) >= segmentBytes) roll();
+    }
+
+    /**
+     * Streams every archived task, oldest first, across the closed segments and the active one.
+     * Returns the number of malformed records skipped.
+     */
+    int forEach(final Consumer<? super Task> sink) throws IOException {
+        if (Files.exists(legacy) && !Files.exists(segment(0))) TaskJsonCodec.readArray(legacy, sink);
+        int skipped = 0;
+        for (final Path segment : closedSegments()) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+                skipped += TaskJsonCodec.readLines(in, sink);
+            }
+        }
+        if (Files.exists(active)) {
+            try (BufferedReader in = Files.newBufferedReader(active, StandardCharsets.UTF_8)) {
+                skipped += TaskJsonCodec.readLines(in, sink);
+            }
+        }
+        return skipped;
+    }
+
+    private void roll() throws IOException {
+        final List<Path> closed = closedSegments();
+        final int        next   = closed.isEmpty() ? 1 : sequence(closed.get(closed.size() - 1)) + 1;
+        compress(active, segment(next));
+        Files.delete(active);
+    }
+
+    private void migrateLegacy() throws IOException {
+        if (Files.exists(segment(0))) {
+            Files.delete(legacy);
+            return;
+        }
+        final List<Task> tasks = new ArrayList<>();
+        TaskJsonCodec.readArray(legacy, tasks::add);
+        AtomicFile.write(segment(0), atLeastFlush(), channel -> {
+            final GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel));
+            for (final Task t : tasks) out.write(TaskJsonCodec.encodeLine(t));
+            out.finish();
+        });
+        Files.delete(legacy);
+    }
+
+    private void compress(final Path source, final Path target) throws IOException {
+        AtomicFile.write(target, atLeastFlush(), channel -> {
+            final GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel));
+            Files.copy(source, out);
+            out.finish();
+        });
+    }
+
+    /** The source of a closed segment is deleted right after, so its copy must never be torn. */
+    private Durability atLeastFlush() {
+        return durability == Durability.NONE ? Durability.FLUSH : durability;
+    }
+
+    private List<Path> closedSegments() throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            final List<Path> segments = new ArrayList<>(files
+                    .filter(p -> CLOSED.matcher(p.getFileName().toString()).matches())
+                    .toList());
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    private Path segment(final int sequence) {
+        return dir.resolve(String.format("deleted-%06d.ndjson.gz", sequence));
+    }
+
+    private static int sequence(final Path segment) {
+        final Matcher m = CLOSED.matcher(segment.getFileName().toString());
+        if (!m.matches()) throw new IllegalArgumentException(segment.toString());
+        return Integer.parseInt(m.group(1));
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(active)) {
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private static byte[] prefixNewline(final byte[] line) {
+        final byte[] prefixed = new byte[line.length + 1];
+        prefixed[0] = '\n';
+        System.arraycopy(line, 0, prefixed, 1, line.length);
+        return prefixed;
+    }
+}
@@ -0,0 +1,14 @@
+package com.todo.storage;
+
+/** How hard a save works to survive a crash, from cheapest to safest. */
+public enum Durability {
+    /** Files are rewritten in place; a crash mid-write can leave a truncated snapshot. */
+    NONE,
+    /**
+     * Snapshots are written to a temporary file and renamed over the old one, so a crash of the
+     * app never leaves a torn file; data may still sit in the OS cache when the machine goes down.
+     */
+    FLUSH,
+    /** Like {@link #FLUSH}, and every write is forced to the storage device before the save returns. */
+    FSYNC
+}
@@ -0,0 +1,65 @@
+package com.todo.storage;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+
+/**
+ * Watches a data directory on a background virtual thread and runs a callback when one of the
+ * given files is created, modified or deleted. Events that arrive together are reported once.
+ * The callback only signals; reading what changed is left to {@link TaskRepository#refresh}.
+ */
+public class ExternalChangeWatcher implements AutoCloseable {
+    private final WatchService service;
+    private final Set<Path>    names;
+    private final Runnable     onChange;
+    private final Thread       worker;
+
+    ExternalChangeWatcher(@NonNull final Path dir, @NonNull final Set<Path> names,
+                          @NonNull final Runnable onChange) throws IOException {
+        this.service  = dir.getFileSystem().newWatchService();
+        this.names    = names;
+        this.onChange = onChange;
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.worker = Thread.ofVirtual().name("todo-watcher").start(this::run);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final WatchKey key     = service.take();
+                boolean        changed = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    // OVERFLOW carries no file name: events were lost, so assume the worst.
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || names.contains(event.context());
+                }
+                key.reset();
+                if (changed) onChange.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
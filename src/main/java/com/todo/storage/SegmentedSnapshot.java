@@ -0,0 +1,485 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import com.todo.model.TaskSnapshot;
+import com.todo.model.TaskSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.Objects.checkIndex;
+
+/**
+ * Task snapshot partitioned by the month a task was created: one {@code yyyy-MM.json} segment per
+ * month in a directory, plus a binary {@code manifest} holding the global order. Opening reads only
+ * the manifest and, in parallel on the common fork-join pool, the segments that hold an open task
+ * or are the newest; segments with nothing but done tasks are read when one of their tasks is.
+ *
+ * <pre>
+ * header   magic:int  version:int  count:int  segmentCount:int
+ * segment  yearMonth:int (year * 12 + month - 1)  generation:int, one per segment, oldest first
+ * record   id:long  segment:int  flags:int, one per task in list order
+ * </pre>
+ *
+ * A rewritten month goes to a file of the next generation, {@code yyyy-MM.N.json} ({@code yyyy-MM.json}
+ * for generation 0), so no file a manifest points at is ever changed. Manifests have generations
+ * too, {@code manifest} then {@code manifest.N}, and the newest is the current one. A write adds
+ * the next manifest, then deletes older manifests that no reader holds and the segment files no
+ * remaining manifest names: a crash at any point leaves a complete manifest with its segments, and
+ * at worst stray files that the next write removes. Version 1 manifests, without segment
+ * generations, are read as generation 0.
+ *
+ * <p>An open snapshot decodes segments long after it was opened, so it holds a shared lock on its
+ * manifest until it is garbage collected; a writer in any process keeps that manifest, and the
+ * segments it names, until then.
+ */
+final class SegmentedSnapshot implements TaskSource {
+    static final String MANIFEST = "manifest";
+
+    private static final int     MAGIC       = 0x54534547; // "TSEG"
+    private static final int     VERSION     = 2;
+    private static final int     HEADER_SIZE = 16;
+    private static final int     RECORD_SIZE = 16;
+    private static final int     FLAG_DONE   = 1;
+    private static final Pattern SEGMENT     = Pattern.compile("(\\d{4}-\\d{2})(?:\\.(\\d+))?\\.json");
+    private static final Pattern MANIFESTS   = Pattern.compile(MANIFEST + "(?:\\.(\\d+))?");
+    private static final Cleaner CLEANER     = Cleaner.create();
+
+    private final Path                                  dir;
+    private final YearMonth[]                           months;
+    private final int[]                                 generations;
+    private final long[]                                ids;
+    private final int[]                                 segments;
+    private final boolean[]                             done;
+    private final AtomicReferenceArray<Map<Long, Task>> loaded;
+
+    private SegmentedSnapshot(final Path dir, final SegmentTable table, final int count) {
+        this.dir         = dir;
+        this.months      = table.months();
+        this.generations = table.generations();
+        this.ids         = new long[count];
+        this.segments    = new int[count];
+        this.done        = new boolean[count];
+        this.loaded      = new AtomicReferenceArray<>(months.length);
+    }
+
+    /** The segments a manifest names, in manifest order. */
+    private record SegmentTable(YearMonth[] months, int[] generations) {
+        int generationOf(final YearMonth month) {
+            for (int s = 0; s < months.length; s++) {
+                if (months[s].equals(month)) return generations[s];
+            }
+            return -1;
+        }
+    }
+
+    static boolean exists(final Path dir) throws IOException {
+        return Files.isDirectory(dir) && current(dir) != null;
+    }
+
+    /** Opens the current manifest, holding it for as long as the snapshot is reachable. */
+    static SegmentedSnapshot open(final Path dir) throws IOException {
+        while (true) {
+            final Path manifest = current(dir);
+            if (manifest == null) throw new NoSuchFileException(dir.resolve(MANIFEST).toString());
+            final Lease lease;
+            try {
+                lease = Lease.acquire(manifest);
+            } catch (NoSuchFileException e) {
+                continue; // superseded and deleted since it was listed
+            }
+            try {
+                // A writer deletes a manifest only under an exclusive lock, so one still there now stays.
+                if (!Files.exists(manifest)) {
+                    lease.release();
+                    continue;
+                }
+                final SegmentedSnapshot snapshot = read(dir, Lease.read(manifest));
+                CLEANER.register(snapshot, lease::release);
+                return snapshot;
+            } catch (IOException | RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+        }
+    }
+
+    private static SegmentedSnapshot read(final Path dir, final ByteBuffer buffer) throws IOException {
+        final SegmentTable table = readTable(buffer);
+        final int          count = buffer.getInt(8);
+        if (count < 0 || buffer.position() + (long) count * RECORD_SIZE > buffer.limit()) {
+            throw new IOException("truncated manifest");
+        }
+        final SegmentedSnapshot snapshot = new SegmentedSnapshot(dir, table, count);
+        for (int i = 0; i < count; i++) {
+            snapshot.ids[i]      = buffer.getLong();
+            snapshot.segments[i] = checkIndex(buffer.getInt(), table.months().length);
+            snapshot.done[i]     = (buffer.getInt() & FLAG_DONE) != 0;
+        }
+        snapshot.preload();
+        return snapshot;
+    }
+
+    /** Reads the header and segment table of a manifest, leaving {@code buffer} at the first record. */
+    private static SegmentTable readTable(final ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a segment manifest");
+        }
+        final int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("unsupported manifest version " + version);
+        }
+        final int segmentCount = buffer.getInt(12);
+        final int segmentSize  = version == 1 ? 4 : 8;
+        if (segmentCount < 0 || HEADER_SIZE + (long) segmentSize * segmentCount > buffer.limit()) {
+            throw new IOException("truncated manifest");
+        }
+        buffer.position(HEADER_SIZE);
+        final YearMonth[] months      = new YearMonth[segmentCount];
+        final int[]       generations = new int[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            final int ym = buffer.getInt();
+            months[s]      = YearMonth.of(ym / 12, ym % 12 + 1);
+            generations[s] = version == 1 ? 0 : buffer.getInt();
+        }
+        return new SegmentTable(months, generations);
+    }
+
+    /**
+     * Writes {@code tasks}, rewriting only the segments of the months in {@code dirty} (all of them
+     * when {@code null}), then the next manifest, then deletes what no manifest still needs.
+     *
+     * <p>Only the tasks of rewritten months are decoded. When {@code tasks} is a {@link TaskSnapshot}
+     * over a segmented snapshot, a task unchanged since then takes its month from there, so the
+     * months left as they are cost neither a read nor a decode.
+     */
+    static void write(final Path dir, final List<Task> tasks, final Set<YearMonth> dirty,
+                      final Durability durability) throws IOException {
+        Files.createDirectories(dir);
+        final int         count  = tasks.size();
+        final long[]      ids    = new long[count];
+        final boolean[]   done   = new boolean[count];
+        final YearMonth[] months = new YearMonth[count];
+        if (tasks instanceof TaskSnapshot snapshot && snapshot.source() instanceof SegmentedSnapshot source) {
+            snapshot.forEachEntry((i, id, isDone, origin) -> {
+                ids[i]    = id;
+                done[i]   = isDone;
+                months[i] = origin >= 0 ? source.monthAt(origin) : monthOf(tasks.get(i));
+            });
+        } else {
+            for (int i = 0; i < count; i++) {
+                final Task t = tasks.get(i);
+                ids[i]    = t.id();
+                done[i]   = t.done();
+                months[i] = monthOf(t);
+            }
+        }
+
+        final Path         previous = current(dir);
+        final SegmentTable current  = previous != null && dirty != null
+                ? readTable(Lease.read(previous))
+                : new SegmentTable(new YearMonth[0], new int[0]);
+        final Map<YearMonth, Integer> newest = new HashMap<>();
+        for (final Path file : segmentFiles(dir)) newest.merge(monthOf(file), generationOf(file), Math::max);
+
+        final List<YearMonth> present     = new ArrayList<>(new TreeSet<>(List.of(months)));
+        final int[]           generations = new int[present.size()];
+        final Set<YearMonth>  rewritten   = new HashSet<>();
+        for (int s = 0; s < present.size(); s++) {
+            final YearMonth month = present.get(s);
+            final int       kept  = current.generationOf(month);
+            if (kept >= 0 && !dirty.contains(month) && Files.exists(segment(dir, month, kept))) {
+                generations[s] = kept;
+            } else {
+                // Never the generation of a file already there: an older manifest may point at it.
+                generations[s] = newest.containsKey(month) ? newest.get(month) + 1 : 0;
+                rewritten.add(month);
+            }
+        }
+        final TreeMap<YearMonth, List<Task>> byMonth = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            if (rewritten.contains(months[i])) byMonth.computeIfAbsent(months[i], m -> new ArrayList<>()).add(tasks.get(i));
+        }
+        final Map<YearMonth, Integer> index = new HashMap<>();
+        for (int s = 0; s < present.size(); s++) {
+            final YearMonth month = present.get(s);
+            index.put(month, s);
+            if (rewritten.contains(month)) {
+                TaskJsonCodec.write(segment(dir, month, generations[s]), byMonth.get(month), durability);
+            }
+        }
+
+        final ByteBuffer manifest = ByteBuffer.allocate(HEADER_SIZE + 8 * present.size() + count * RECORD_SIZE);
+        manifest.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(present.size());
+        for (int s = 0; s < present.size(); s++) {
+            final YearMonth m = present.get(s);
+            manifest.putInt(m.getYear() * 12 + m.getMonthValue() - 1).putInt(generations[s]);
+        }
+        for (int i = 0; i < count; i++) {
+            manifest.putLong(ids[i]).putInt(index.get(months[i])).putInt(done[i] ? FLAG_DONE : 0);
+        }
+        manifest.flip();
+        final Path next = manifest(dir, previous == null ? 0 : manifestGeneration(previous) + 1);
+        AtomicFile.write(next, durability == Durability.NONE ? Durability.FLUSH : durability,
+                channel -> AtomicFile.writeFully(channel, manifest));
+        collect(dir, next);
+    }
+
+    /**
+     * Deletes the manifests older than {@code current} that no reader holds, then the segment
+     * files that no remaining manifest names.
+     */
+    private static void collect(final Path dir, final Path current) throws IOException {
+        final Set<Path> keep = new HashSet<>();
+        for (final Path manifest : manifestFiles(dir)) {
+            if (!manifest.equals(current) && Lease.deleteUnlessHeld(manifest)) continue;
+            final SegmentTable table;
+            try {
+                table = readTable(Lease.read(manifest));
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            for (int s = 0; s < table.months().length; s++) {
+                keep.add(segment(dir, table.months()[s], table.generations()[s]));
+            }
+        }
+        for (final Path file : segmentFiles(dir)) {
+            if (!keep.contains(file)) Files.delete(file);
+        }
+    }
+
+    /** Removes the manifests and every segment, e.g. after switching to another snapshot format. */
+    static void delete(final Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        for (final Path file : segmentFiles(dir)) Files.delete(file);
+        for (final Path file : manifestFiles(dir)) Files.delete(file);
+        try (Stream<Path> rest = Files.list(dir)) {
+            if (rest.findAny().isEmpty()) Files.delete(dir);
+        }
+    }
+
+    static YearMonth monthOf(final Task task) {
+        return YearMonth.from(task.createdAt());
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public long id(final int index) {
+        return ids[index];
+    }
+
+    @Override
+    public boolean done(final int index) {
+        return done[index];
+    }
+
+    @Override
+    public Task get(final int index) {
+        final Task task = segment(segments[index]).get(ids[index]);
+        if (task == null) {
+            throw new UncheckedIOException(new IOException(
+                    "task " + ids[index] + " missing from segment " + months[segments[index]]));
+        }
+        return task;
+    }
+
+    /** The month whose segment holds the task at {@code index}, known without reading it. */
+    YearMonth monthAt(final int index) {
+        return months[segments[index]];
+    }
+
+    /** Number of segments read so far. */
+    int loadedSegments() {
+        int n = 0;
+        for (int s = 0; s < loaded.length(); s++) {
+            if (loaded.get(s) != null) n++;
+        }
+        return n;
+    }
+
+    private void preload() throws IOException {
+        final Set<Integer> hot = new LinkedHashSet<>();
+        if (months.length > 0) hot.add(months.length - 1);
+        for (int i = 0; i < ids.length; i++) {
+            if (!done[i]) hot.add(segments[i]);
+        }
+        try {
+            hot.parallelStream().forEach(this::segment);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Map<Long, Task> segment(final int s) {
+        final Map<Long, Task> cached = loaded.get(s);
+        if (cached != null) return cached;
+        final Map<Long, Task> tasks = new HashMap<>();
+        try {
+            TaskJsonCodec.readArray(segment(dir, months[s], generations[s]), t -> tasks.put(t.id(), t));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read segment " + months[s], e);
+        }
+        return loaded.compareAndSet(s, null, tasks) ? tasks : loaded.get(s);
+    }
+
+    private static Path segment(final Path dir, final YearMonth month, final int generation) {
+        return dir.resolve(generation == 0 ? month + ".json" : month + "." + generation + ".json");
+    }
+
+    /** The newest manifest in {@code dir}, or null if there is none. */
+    private static Path current(final Path dir) throws IOException {
+        Path newest = null;
+        for (final Path manifest : manifestFiles(dir)) {
+            if (newest == null || manifestGeneration(manifest) > manifestGeneration(newest)) newest = manifest;
+        }
+        return newest;
+    }
+
+    private static Path manifest(final Path dir, final int generation) {
+        return dir.resolve(generation == 0 ? MANIFEST : MANIFEST + "." + generation);
+    }
+
+    private static int manifestGeneration(final Path manifest) {
+        final Matcher m = MANIFESTS.matcher(manifest.getFileName().toString());
+        if (!m.matches()) throw new IllegalArgumentException("not a manifest: " + manifest);
+        return m.group(1) == null ? 0 : Integer.parseInt(m.group(1));
+    }
+
+    private static List<Path> manifestFiles(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> MANIFESTS.matcher(p.getFileName().toString()).matches()).toList();
+        }
+    }
+
+    private static List<Path> segmentFiles(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> SEGMENT.matcher(p.getFileName().toString()).matches()).toList();
+        }
+    }
+
+    private static Matcher match(final Path file) {
+        final Matcher m = SEGMENT.matcher(file.getFileName().toString());
+        if (!m.matches()) throw new IllegalArgumentException("not a segment: " + file);
+        return m;
+    }
+
+    private static YearMonth monthOf(final Path file) {
+        return YearMonth.parse(match(file).group(1));
+    }
+
+    private static int generationOf(final Path file) {
+        final String generation = match(file).group(2);
+        return generation == null ? 0 : Integer.parseInt(generation);
+    }
+
+    /**
+     * A shared lock on one manifest, held on behalf of every snapshot of it open in this JVM. File
+     * locks belong to the whole process: a second lock on the same file here would fail, and on
+     * POSIX systems closing any other channel to the file drops the lock, so a held manifest is
+     * only ever read through its lease.
+     */
+    private static final class Lease {
+        private static final Map<Path, Lease> HELD = new HashMap<>();
+
+        private final Path        manifest;
+        private final FileChannel channel;
+        private int               holders = 1;
+
+        private Lease(final Path manifest, final FileChannel channel) {
+            this.manifest = manifest;
+            this.channel  = channel;
+        }
+
+        static Lease acquire(final Path manifest) throws IOException {
+            final Path key = key(manifest);
+            synchronized (HELD) {
+                final Lease held = HELD.get(key);
+                if (held != null) {
+                    held.holders++;
+                    return held;
+                }
+                final FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+                try {
+                    channel.lock(0, Long.MAX_VALUE, true);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+                final Lease lease = new Lease(key, channel);
+                HELD.put(key, lease);
+                return lease;
+            }
+        }
+
+        /** The whole of {@code manifest}, through its lease if this JVM holds one. */
+        static ByteBuffer read(final Path manifest) throws IOException {
+            synchronized (HELD) {
+                final Lease held = HELD.get(key(manifest));
+                if (held == null) return ByteBuffer.wrap(Files.readAllBytes(manifest));
+                final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(held.channel.size()));
+                while (buffer.hasRemaining() && held.channel.read(buffer, buffer.position()) >= 0) {
+                    // positional reads leave the channel free for other holders
+                }
+                return buffer.flip();
+            }
+        }
+
+        /** Deletes {@code manifest} unless a snapshot in this or another process holds it. */
+        static boolean deleteUnlessHeld(final Path manifest) throws IOException {
+            synchronized (HELD) {
+                if (HELD.containsKey(key(manifest))) return false;
+                try (FileChannel channel = FileChannel.open(manifest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    final FileLock lock = channel.tryLock();
+                    if (lock == null) return false;
+                    // Deleted under the lock, so a reader that locks it next finds it gone.
+                    Files.delete(manifest);
+                    return true;
+                } catch (NoSuchFileException e) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            synchronized (HELD) {
+                if (--holders > 0) return;
+                HELD.remove(manifest);
+                try {
+                    channel.close(); // releases the lock
+                } catch (IOException e) {
+                    // nothing is left to clean up
+                }
+            }
+        }
+
+        private static Path key(final Path manifest) {
+            return manifest.toAbsolutePath().normalize();
+        }
+    }
+}
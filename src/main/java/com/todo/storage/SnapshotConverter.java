@@ -0,0 +1,37 @@
+package com.todo.storage;
+
+import com.todo.model.TaskList;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Converts task snapshots between the JSON and binary formats. The target format is picked from
+ * the file extension: {@code java -cp todo.jar com.todo.storage.SnapshotConverter tasks.json tasks.bin}.
+ */
+public final class SnapshotConverter {
+    private SnapshotConverter() {}
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotConverter <from> <to>   (.json or .bin)");
+            System.exit(2);
+        }
+        final Path from = Path.of(args[0]);
+        final Path to   = Path.of(args[1]);
+        if (to.toString().endsWith(".bin")) {
+            toBinary(from, to);
+        } else {
+            toJson(from, to);
+        }
+    }
+
+    public static void toBinary(@NonNull final Path json, @NonNull final Path binary) throws IOException {
+        BinarySnapshot.write(binary, TaskJsonCodec.read(json).getAll(), Durability.FSYNC);
+    }
+
+    public static void toJson(@NonNull final Path binary, @NonNull final Path json) throws IOException {
+        TaskJsonCodec.write(json, new TaskList(BinarySnapshot.read(binary)).getAll(), Durability.FSYNC);
+    }
+}
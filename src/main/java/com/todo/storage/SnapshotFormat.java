@@ -0,0 +1,14 @@
+package com.todo.storage;
+
+/** On-disk encoding of the task snapshot that the journal is replayed onto. */
+public enum SnapshotFormat {
+    /** Human-readable {@code tasks.json}. */
+    JSON,
+    /** Binary {@code tasks.bin}; task text is decoded only when a task is read. */
+    BINARY,
+    /**
+     * One JSON segment per creation month under {@code tasks.segments/} plus a manifest with the
+     * order; a checkpoint rewrites only the months that changed.
+     */
+    SEGMENTED
+}
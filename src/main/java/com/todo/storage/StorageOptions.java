@@ -0,0 +1,38 @@
+package com.todo.storage;
+
+import lombok.With;
+
+/**
+ * Tuning knobs for {@link TaskRepository}.
+ *
+ * @param journal             append each change to {@code tasks.journal} instead of rewriting the snapshot
+ * @param checkpointInterval  number of journal records after which the journal is folded back into the snapshot
+ * @param format              encoding of the snapshot
+ * @param archiveSegmentBytes size at which the active deleted-task segment is compressed and a new one started
+ * @param durability          how snapshot rewrites and appends are protected against crashes
+ * @param columnar            keep a JSON snapshot in {@link com.todo.model.TaskColumns} after loading instead of as tasks
+ */
+@With
+public record StorageOptions(boolean journal, int checkpointInterval, SnapshotFormat format, long archiveSegmentBytes,
+                             Durability durability, boolean columnar) {
+
+    public static final StorageOptions DEFAULT =
+            new StorageOptions(true, 1_000, SnapshotFormat.JSON, 1 << 20, Durability.FSYNC, false);
+
+    /**
+     * Reads overrides such as {@code -Dtodo.format=binary}, {@code -Dtodo.journal=false},
+     * {@code -Dtodo.durability=flush} or {@code -Dtodo.columnar=true}.
+     */
+    public static StorageOptions fromSystemProperties() {
+        StorageOptions options = DEFAULT;
+        final String journal = System.getProperty("todo.journal");
+        if (journal != null) options = options.withJournal(Boolean.parseBoolean(journal));
+        final String format = System.getProperty("todo.format");
+        if (format != null) options = options.withFormat(SnapshotFormat.valueOf(format.toUpperCase()));
+        final String durability = System.getProperty("todo.durability");
+        if (durability != null) options = options.withDurability(Durability.valueOf(durability.toUpperCase()));
+        final String columnar = System.getProperty("todo.columnar");
+        if (columnar != null) options = options.withColumnar(Boolean.parseBoolean(columnar));
+        return options;
+    }
+}
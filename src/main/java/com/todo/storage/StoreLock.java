@@ -0,0 +1,102 @@
+package com.todo.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on {@code tasks.lock}, shared by every process using the same data directory.
+ * The file also holds the {@link Stamp} of the data on disk, so a process can tell whether anyone
+ * else saved since it last did. A file lock is held per JVM, not per thread, so threads of one
+ * process are serialized by a lock of their own first.
+ *
+ * <pre>
+ * version:long  epoch:long
+ * </pre>
+ */
+final class StoreLock implements AutoCloseable {
+    private static final int                      SIZE     = 16;
+    private static final Map<Path, ReentrantLock> INTERNAL = new ConcurrentHashMap<>();
+
+    /** Work done under the lock; it gets the lock so it may read or write the stamp. */
+    @FunctionalInterface
+    interface Locked {
+        void run(StoreLock lock) throws IOException;
+    }
+
+    private final ReentrantLock internal;
+    private final FileChannel   channel;
+    private final FileLock      lock;
+
+    private StoreLock(final ReentrantLock internal, final FileChannel channel, final FileLock lock) {
+        this.internal = internal;
+        this.channel  = channel;
+        this.lock     = lock;
+    }
+
+    static StoreLock acquire(final Path file) throws IOException {
+        final ReentrantLock internal = INTERNAL.computeIfAbsent(file.toAbsolutePath().normalize(),
+                p -> new ReentrantLock());
+        internal.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new StoreLock(internal, channel, channel.lock());
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) channel.close();
+            internal.unlock();
+            throw e;
+        }
+    }
+
+    /** Runs {@code action} holding the lock on {@code file}, released however it ends. */
+    static void holding(final Path file, final Locked action) throws IOException {
+        try (StoreLock lock = acquire(file)) {
+            action.run(lock);
+        }
+    }
+
+    /** The stamp last written, or {@link Stamp#INITIAL} for a fresh data directory. */
+    Stamp read() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return Stamp.INITIAL;
+        }
+        return new Stamp(buffer.getLong(0), buffer.getLong(8));
+    }
+
+    void write(final Stamp stamp) throws IOException {
+        channel.position(0);
+        AtomicFile.writeFully(channel, ByteBuffer.allocate(SIZE).putLong(stamp.version()).putLong(stamp.epoch()).flip());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+            channel.close();
+        } finally {
+            internal.unlock();
+        }
+    }
+
+    /**
+     * Identifies the data on disk: {@code version} grows with every save by any process and
+     * {@code epoch} with every checkpoint, which empties the journal.
+     */
+    record Stamp(long version, long epoch) {
+        static final Stamp INITIAL = new Stamp(0, 0);
+
+        Stamp next(final boolean checkpoint) {
+            return new Stamp(version + 1, checkpoint ? epoch + 1 : epoch);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.todo.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.todo.model.TaskChange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Append-only log of {@link TaskChange}s, one JSON object per line, replayed on top of the snapshot. */
+class TaskJournal {
+    private final Path         file;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Durability   durability;
+
+    TaskJournal(final Path file, final ObjectMapper mapper, final Durability durability) {
+        this.file       = file;
+        this.durability = durability;
+        this.writer     = mapper.writerFor(TaskChange.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.reader     = mapper.readerFor(TaskChange.class);
+    }
+
+    /**
+     * Appends all records with one write, so a batch is as durable as a single change, and returns
+     * the journal size afterwards. A torn last line is cut off first; appended to, it would glue
+     * the first new record onto the fragment.
+     */
+    long append(final List<TaskChange> changes) throws IOException {
+        if (changes.isEmpty()) return Files.exists(file) ? Files.size(file) : 0;
+        dropTornLine();
+        final StringBuilder lines = new StringBuilder();
+        for (final TaskChange change : changes) {
+            lines.append(writer.writeValueAsString(change)).append('\n');
+        }
+        return AtomicFile.append(file, lines.toString().getBytes(StandardCharsets.UTF_8), durability);
+    }
+
+    /** Reads all records in order; see {@link #read(long)}. */
+    List<TaskChange> read() throws IOException {
+        return read(0).changes();
+    }
+
+    /**
+     * Reads the records that start at byte {@code from}, e.g. the ones another process appended
+     * after this one last read or wrote. A torn last line, left behind by a crash mid-append,
+     * is skipped and not counted in {@link Tail#end()}; a malformed line anywhere else means the
+     * journal is corrupt.
+     */
+    Tail read(final long from) throws IOException {
+        final List<TaskChange> changes = new ArrayList<>();
+        if (!Files.exists(file)) return new Tail(changes, 0);
+        final byte[] bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size <= from) return new Tail(changes, size);
+            final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size - from));
+            channel.position(from);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            bytes = buffer.array();
+        }
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') continue;
+            final String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                try {
+                    changes.add(reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    if (i + 1 < bytes.length) throw e;
+                }
+            }
+            start = i + 1;
+        }
+        return new Tail(changes, from + start);
+    }
+
+    /** Truncates the journal after its last complete line, if anything follows that line. */
+    private void dropTornLine() throws IOException {
+        if (!Files.exists(file)) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = channel.size();
+            while (end > 0) {
+                final long from = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit(Math.toIntExact(end - from));
+                channel.position(from);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) break;
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        if (from + i + 1 < channel.size()) channel.truncate(from + i + 1);
+                        return;
+                    }
+                }
+                end = from;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    void clear() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** Records read from the journal and the offset just past the last complete one. */
+    record Tail(List<TaskChange> changes, long end) {}
+}
@@ -0,0 +1,249 @@
+package com.todo.storage;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.todo.model.Task;
+import com.todo.model.TaskColumns;
+import com.todo.model.TaskList;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Token-stream codec for the {@code tasks.json} format. Reading fills a {@link TaskList} in a single
+ * pass without an intermediate {@code List<Task>}; writing produces the same bytes as the
+ * pretty-printing {@code ObjectMapper} without going through reflection.
+ */
+final class TaskJsonCodec {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private TaskJsonCodec() {}
+
+    static TaskList read(final Path file) throws IOException {
+        final TaskList.Builder builder = TaskList.builder();
+        readArray(file, builder::add);
+        return builder.build();
+    }
+
+    static TaskColumns readColumns(final Path file) throws IOException {
+        final TaskColumns columns = new TaskColumns((int) Math.min(Files.size(file) / 100, 1 << 20));
+        readArray(file, columns::add);
+        return columns.trim();
+    }
+
+    static void readArray(final Path file, final Consumer<? super Task> sink) throws IOException {
+        try (InputStream in = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+             JsonParser parser = FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                sink.accept(readTask(parser));
+            }
+        }
+    }
+
+    /**
+     * Streams a newline-delimited file of task objects to {@code sink} and returns the number of
+     * malformed lines skipped: cut short by a crash, or damaged so that a value does not fit its
+     * field. One bad line never hides the ones after it.
+     */
+    static int readLines(final BufferedReader in, final Consumer<? super Task> sink) throws IOException {
+        int skipped = 0;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            if (line.isBlank()) continue;
+            final Task task;
+            try (JsonParser parser = FACTORY.createParser(line)) {
+                parser.nextToken();
+                task = readTask(parser);
+            } catch (StreamReadException | DateTimeException e) {
+                skipped++;
+                continue;
+            }
+            sink.accept(task);
+        }
+        return skipped;
+    }
+
+    /** Encodes a task as a single-line JSON object terminated by a newline. */
+    static byte[] encodeLine(final Task task) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator gen = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            writeTask(gen, task);
+        }
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    static void write(final Path file, final List<Task> tasks, final Durability durability) throws IOException {
+        AtomicFile.write(file, durability, channel -> write(channel, tasks));
+    }
+
+    /** Writes the tasks as a pretty-printed JSON array, leaving {@code channel} open. */
+    static void write(final WritableByteChannel channel, final List<Task> tasks) throws IOException {
+        final OutputStream out = Channels.newOutputStream(channel);
+        try (JsonGenerator gen = FACTORY.createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .useDefaultPrettyPrinter()) {
+            gen.writeStartArray();
+            for (final Task t : tasks) writeTask(gen, t);
+            gen.writeEndArray();
+        }
+    }
+
+    static Task readTask(final JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        long          id        = 0;
+        String        text      = null;
+        boolean       done      = false;
+        LocalDateTime createdAt = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id"        -> id = parser.getLongValue();
+                case "text"      -> text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                case "done"      -> done = parser.getBooleanValue();
+                case "createdAt" -> createdAt = readDateTime(parser, value);
+                default          -> parser.skipChildren();
+            }
+        }
+        if (text == null || createdAt == null) {
+            throw new JsonParseException(parser, "task " + id + " is missing text or createdAt");
+        }
+        return new Task(id, text, done, createdAt);
+    }
+
+    static void writeTask(final JsonGenerator gen, final Task t) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("id", t.id());
+        gen.writeStringField("text", t.text());
+        gen.writeBooleanField("done", t.done());
+        gen.writeFieldName("createdAt");
+        final char[] buf = new char[29];
+        gen.writeString(buf, 0, formatDateTime(t.createdAt(), buf));
+        gen.writeEndObject();
+    }
+
+    /**
+     * Formats like {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} (seconds always, fraction without
+     * trailing zeros) into {@code buf}, returning the length. Years outside 0..9999 use the formatter.
+     */
+    static int formatDateTime(final LocalDateTime dt, final char[] buf) {
+        final int year = dt.getYear();
+        if (year < 0 || year > 9999) {
+            final String s = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dt);
+            s.getChars(0, s.length(), buf, 0);
+            return s.length();
+        }
+        digits(buf, 0, year, 4);
+        buf[4] = '-';
+        digits(buf, 5, dt.getMonthValue(), 2);
+        buf[7] = '-';
+        digits(buf, 8, dt.getDayOfMonth(), 2);
+        buf[10] = 'T';
+        digits(buf, 11, dt.getHour(), 2);
+        buf[13] = ':';
+        digits(buf, 14, dt.getMinute(), 2);
+        buf[16] = ':';
+        digits(buf, 17, dt.getSecond(), 2);
+        int nano = dt.getNano();
+        if (nano == 0) return 19;
+        int width = 9;
+        while (nano % 10 == 0) {
+            nano /= 10;
+            width--;
+        }
+        buf[19] = '.';
+        digits(buf, 20, nano, width);
+        return 20 + width;
+    }
+
+    /** Parses {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]} without allocating; anything else goes to {@link LocalDateTime#parse}. */
+    static LocalDateTime parseDateTime(final char[] c, final int off, final int len) {
+        if (len < 16 || c[off + 4] != '-' || c[off + 7] != '-' || c[off + 10] != 'T' || c[off + 13] != ':') {
+            return LocalDateTime.parse(new String(c, off, len));
+        }
+        final int year   = number(c, off, 4);
+        final int month  = number(c, off + 5, 2);
+        final int day    = number(c, off + 8, 2);
+        final int hour   = number(c, off + 11, 2);
+        final int minute = number(c, off + 14, 2);
+        int second = 0;
+        int nano   = 0;
+        if (len > 16) {
+            if (len < 19 || c[off + 16] != ':') return LocalDateTime.parse(new String(c, off, len));
+            second = number(c, off + 17, 2);
+            if (len > 19) {
+                final int digits = len - 20;
+                if (c[off + 19] != '.' || digits < 1 || digits > 9) return LocalDateTime.parse(new String(c, off, len));
+                nano = number(c, off + 20, digits);
+                for (int i = digits; i < 9; i++) nano *= 10;
+            }
+        }
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            return LocalDateTime.parse(new String(c, off, len));
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private static void digits(final char[] buf, final int at, int value, final int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /** Returns the decimal value of {@code width} digits, or -1 if one of them is not a digit. */
+    private static int number(final char[] c, final int at, final int width) {
+        int value = 0;
+        for (int i = at; i < at + width; i++) {
+            final int d = c[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /** Accepts the ISO string written today as well as the {@code [y,M,d,h,m,s,n]} timestamp array. */
+    private static LocalDateTime readDateTime(final JsonParser parser, final JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token == JsonToken.START_ARRAY) {
+            final int[] f = new int[7];
+            int n = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (n < f.length) f[n++] = parser.getIntValue();
+            }
+            return LocalDateTime.of(f[0], f[1], f[2], f[3], f[4], f[5], f[6]);
+        }
+        try {
+            return parseDateTime(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } catch (DateTimeException e) {
+            throw new JsonParseException(parser, "invalid createdAt: " + parser.getText(), e);
+        }
+    }
+
+    private static void expect(final JsonParser parser, final JsonToken actual, final JsonToken expected)
+            throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "expected " + expected + " but found " + actual);
+        }
+    }
+}
@@ -1,81 +1,360 @@
 package com.todo.storage;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.todo.model.Task;
+import com.todo.model.TaskChange;
 import com.todo.model.TaskList;
 import com.todo.ui.Ansi;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class TaskRepository {
     private static final Path DEFAULT_FILE = Path.of(System.getProperty("user.home"), ".todo", "tasks.json");
 
-    private final Path         dataFile;
-    private final Path         deletedFile;
-    private final ObjectMapper mapper;
+    private final Path           dataFile;
+    private final Path           binaryFile;
+    private final Path           segmentDir;
+    private final Path           lockFile;
+    private final ObjectMapper   mapper;
+    private final StorageOptions options;
+    private final TaskJournal    journal;
+    private final DeletedArchive archive;
+
+    // The list whose state equals snapshot + journal on disk; only its changes may be appended.
+    private TaskList journaled;
+    private int      journalSize;
+
+    // What this process last read or wrote, to detect and merge saves by other processes.
+    private StoreLock.Stamp synced = StoreLock.Stamp.INITIAL;
+    private long            journalOffset;
+    // tasks.json as last read or written, to notice edits made without taking the lock.
+    private FileTime        jsonModified;
+    // Set when a save failed part way: what it left on disk is unknown, so the next commit or
+    // refresh reloads the full state instead of trusting the journal offset.
+    private boolean         resync;
+
+    // Whether tasks.segments/ matches the journaled list except for the months in dirtySegments.
+    private boolean              segmentsCurrent;
+    private final Set<YearMonth> dirtySegments = new HashSet<>();
+
+    // Group commit: every save takes a ticket; one commit covers all tickets taken before it drained.
+    private final AtomicLong tickets = new AtomicLong();
+    private long             committedThrough;
+    private TaskList         committedList;
+    private StorageException commitFailure;
 
     public TaskRepository() {
         this(DEFAULT_FILE);
     }
 
+    public TaskRepository(@NonNull final StorageOptions options) {
+        this(DEFAULT_FILE, options);
+    }
+
     public TaskRepository(@NonNull final Path dataFile) {
+        this(dataFile, StorageOptions.DEFAULT);
+    }
+
+    public TaskRepository(@NonNull final Path dataFile, @NonNull final StorageOptions options) {
         this.dataFile    = dataFile;
-        this.deletedFile = dataFile.resolveSibling("deleted.json");
-        this.mapper      = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.binaryFile  = dataFile.resolveSibling("tasks.bin");
+        this.segmentDir  = dataFile.resolveSibling("tasks.segments");
+        this.lockFile    = dataFile.resolveSibling("tasks.lock");
+        this.options     = options;
+        this.mapper      = createMapper();
+        this.journal     = new TaskJournal(dataFile.resolveSibling("tasks.journal"), mapper, options.durability());
+        this.archive     = new DeletedArchive(dataFile.getParent(), options.archiveSegmentBytes(), options.durability());
     }
 
-    public TaskList load() {
-        if (!Files.exists(dataFile)) {
-            return new TaskList(new ArrayList<>());
-        }
+    static ObjectMapper createMapper() {
+        final ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        return mapper;
+    }
+
+    public synchronized TaskList load() {
         try {
-            final List<Task> tasks = mapper.readValue(dataFile.toFile(), new TypeReference<>() {});
-            return new TaskList(tasks);
+            Files.createDirectories(dataFile.getParent());
+            try (StoreLock lock = StoreLock.acquire(lockFile)) {
+                final TaskList taskList = readState();
+                journaled = taskList;
+                synced    = lock.read();
+                return taskList;
+            }
         } catch (IOException e) {
             throw new StorageException("Could not read " + dataFile + ": " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Brings {@code taskList} up to date with saves made by other processes since this repository
+     * last synced, without writing anything. Changes appended to the journal are merged one by one,
+     * so the cost follows the size of the change; after a checkpoint by another process, or an edit
+     * of {@code tasks.json} by hand, everything is reloaded. Unsaved local changes are kept on top.
+     *
+     * @return whether the list changed
+     */
+    public synchronized boolean refresh(@NonNull final TaskList taskList) {
+        if (taskList != journaled) return false;
+        try (StoreLock lock = StoreLock.acquire(lockFile)) {
+            final StoreLock.Stamp disk   = lock.read();
+            final boolean         edited = !Objects.equals(jsonModified, jsonModified());
+            if (disk.equals(synced) && !edited && !resync) return false;
+            if (disk.epoch() == synced.epoch() && !edited && !resync) {
+                final TaskJournal.Tail tail = journal.read(journalOffset);
+                taskList.merge(tail.changes(), List.of());
+                markDirty(tail.changes());
+                journalSize  += tail.changes().size();
+                journalOffset = tail.end();
+            } else {
+                final TaskList reloaded = readState();
+                taskList.rebase(List.copyOf(reloaded.getAll()), List.of());
+            }
+            synced = disk;
+            resync = false;
+            return true;
+        } catch (IOException e) {
+            throw new StorageException("Could not read " + dataFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Watches the data directory and calls {@code onChange} on a background thread whenever another
+     * process may have saved; the caller then {@link #refresh refreshes} on its own thread.
+     */
+    public ExternalChangeWatcher watch(@NonNull final Runnable onChange) {
+        try {
+            Files.createDirectories(dataFile.getParent());
+            return new ExternalChangeWatcher(dataFile.getParent(),
+                    Set.of(lockFile.getFileName(), dataFile.getFileName()), onChange);
+        } catch (IOException e) {
+            throw new StorageException("Could not watch " + dataFile.getParent() + ": " + e.getMessage(), e);
+        }
+    }
+
     public void saveDeleted(@NonNull final Task task) {
+        saveDeleted(List.of(task));
+    }
+
+    /**
+     * Archives several deleted tasks with a single append.
+     *
+     * @throws StorageException if the archive cannot be written
+     */
+    public void saveDeleted(@NonNull final List<Task> tasks) {
         try {
-            Files.createDirectories(deletedFile.getParent());
-            final List<Task> existing = Files.exists(deletedFile)
-                    ? new ArrayList<>(mapper.readValue(deletedFile.toFile(), new TypeReference<>() {}))
-                    : new ArrayList<>();
-            existing.add(task);
-            mapper.writeValue(deletedFile.toFile(), existing);
+            Files.createDirectories(dataFile.getParent());
+            StoreLock.holding(lockFile, lock -> archive.append(tasks));
         } catch (IOException e) {
-            System.err.println(Ansi.RED + "Error saving deleted task: " + e.getMessage() + Ansi.RESET);
+            throw new StorageException("Could not archive deleted tasks: " + e.getMessage(), e);
         }
     }
 
     public List<Task> loadDeleted() {
-        if (!Files.exists(deletedFile)) return new ArrayList<>();
+        final List<Task> deleted = new ArrayList<>();
+        forEachDeleted(deleted::add);
+        return deleted;
+    }
+
+    /** Streams the archived deleted tasks, oldest first, without holding the whole archive in memory. */
+    public void forEachDeleted(@NonNull final Consumer<? super Task> sink) {
         try {
-            return mapper.readValue(deletedFile.toFile(), new TypeReference<>() {});
+            final int skipped = archive.forEach(sink);
+            if (skipped > 0) {
+                System.err.println(Ansi.RED + "Skipped " + skipped + " damaged deleted task(s)" + Ansi.RESET);
+            }
         } catch (IOException e) {
             System.err.println(Ansi.RED + "Error reading deleted file: " + e.getMessage() + Ansi.RESET);
-            return new ArrayList<>();
         }
     }
 
+    /**
+     * Persists the list. In journal mode only the changes since the last save are appended;
+     * the full snapshot is rewritten every {@link StorageOptions#checkpointInterval()} records,
+     * or when the list is not the one this repository last loaded or saved.
+     * <p>
+     * May be called from a background thread while another thread keeps mutating the list.
+     * Concurrent callers are group-committed: a caller that waited for another save to finish
+     * returns without writing if that save already drained its changes.
+     */
     public void save(@NonNull final TaskList taskList) {
+        final long ticket = tickets.incrementAndGet();
+        synchronized (this) {
+            if (committedList == taskList && committedThrough >= ticket) {
+                if (commitFailure != null) throw commitFailure;
+                return;
+            }
+            // Every ticket up to here was taken after its caller's change, so the drain below sees it.
+            final long upTo = tickets.get();
+            try {
+                commit(taskList);
+                commitFailure = null;
+            } catch (StorageException e) {
+                commitFailure = e;
+                throw e;
+            } finally {
+                committedThrough = upTo;
+                committedList    = taskList;
+            }
+        }
+    }
+
+    /**
+     * Writes the list's changes while holding {@code tasks.lock}. If another process saved since
+     * this one last synced, its changes are merged into the list first: one by one from the journal
+     * tail, or by reloading when it has checkpointed in the meantime.
+     * <p>
+     * If writing fails, the drained changes go back to the list to be saved again, and the next
+     * commit or refresh reloads what is on disk and merges onto that, so the list stays the one
+     * this repository merges into.
+     */
+    private void commit(final TaskList taskList) {
+        List<TaskChange> drained = null;
         try {
             Files.createDirectories(dataFile.getParent());
-            mapper.writeValue(dataFile.toFile(), taskList.getAll());
-        } catch (IOException e) {
+            try (StoreLock lock = StoreLock.acquire(lockFile)) {
+                final StoreLock.Stamp disk    = lock.read();
+                final boolean         edited  = !Objects.equals(jsonModified, jsonModified());
+                final boolean         foreign = taskList == journaled && (edited || resync || !disk.equals(synced));
+                // Read what the other process wrote before taking the list's monitor, which the UI needs.
+                final TaskJournal.Tail tail = foreign && !edited && !resync && disk.epoch() == synced.epoch()
+                        ? journal.read(journalOffset)
+                        : null;
+                final TaskList reloaded = foreign && tail == null ? readState() : null;
+
+                List<TaskChange> changes;
+                final List<Task> snapshot;
+                synchronized (taskList) {
+                    changes = taskList.drainChanges();
+                    drained = changes;
+                    if (tail != null) {
+                        changes = taskList.merge(tail.changes(), changes);
+                        markDirty(tail.changes());
+                        journalSize  += tail.changes().size();
+                        journalOffset = tail.end();
+                    } else if (reloaded != null) {
+                        changes = taskList.rebase(List.copyOf(reloaded.getAll()), changes);
+                    }
+                    drained = changes;
+                    markDirty(changes);
+                    snapshot = options.journal() && taskList == journaled
+                            && journalSize + changes.size() < options.checkpointInterval()
+                            ? null
+                            : taskList.snapshot();
+                }
+                if (snapshot == null) {
+                    journalOffset = journal.append(changes);
+                    journalSize  += changes.size();
+                    synced = changes.isEmpty() ? disk : disk.next(false);
+                } else {
+                    checkpoint(taskList, snapshot);
+                    synced = disk.next(true);
+                }
+                if (!synced.equals(disk)) lock.write(synced);
+                resync = false;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            if (drained != null) taskList.requeue(drained);
+            resync          = true;
+            segmentsCurrent = false; // segment files may be half written; the reload checks them again
             throw new StorageException("Could not save " + dataFile + ": " + e.getMessage(), e);
         }
     }
+
+    /** Reads snapshot and journal, resetting what this repository knows about the files on disk. */
+    private TaskList readState() throws IOException {
+        dirtySegments.clear();
+        final TaskList         taskList = readSnapshot();
+        final TaskJournal.Tail tail     = journal.read(0);
+        try {
+            tail.changes().forEach(taskList::apply);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // a segment the replay needed could not be read
+        }
+        markDirty(tail.changes());
+        journalSize   = tail.changes().size();
+        journalOffset = tail.end();
+        jsonModified  = jsonModified();
+        return taskList;
+    }
+
+    /**
+     * Reads the snapshot in the configured format, falling back to the other format so that
+     * switching formats migrates the data on the next checkpoint.
+     */
+    private TaskList readSnapshot() throws IOException {
+        final SnapshotFormat format = options.format();
+        segmentsCurrent = false;
+        if (format == SnapshotFormat.BINARY && Files.exists(binaryFile)) return new TaskList(BinarySnapshot.read(binaryFile));
+        if (format == SnapshotFormat.SEGMENTED && SegmentedSnapshot.exists(segmentDir)) return readSegments();
+        if (Files.exists(dataFile)) {
+            return options.columnar() ? new TaskList(TaskJsonCodec.readColumns(dataFile)) : TaskJsonCodec.read(dataFile);
+        }
+        if (Files.exists(binaryFile)) return new TaskList(BinarySnapshot.read(binaryFile));
+        if (SegmentedSnapshot.exists(segmentDir)) return readSegments();
+        return new TaskList(new ArrayList<>());
+    }
+
+    private TaskList readSegments() throws IOException {
+        final TaskList taskList = new TaskList(SegmentedSnapshot.open(segmentDir));
+        segmentsCurrent = true;
+        return taskList;
+    }
+
+    private void checkpoint(final TaskList taskList, final List<Task> snapshot) throws IOException {
+        final Durability durability = options.durability();
+        switch (options.format()) {
+            case JSON -> {
+                TaskJsonCodec.write(dataFile, snapshot, durability);
+                Files.deleteIfExists(binaryFile);
+                SegmentedSnapshot.delete(segmentDir);
+            }
+            case BINARY -> {
+                BinarySnapshot.write(binaryFile, snapshot, durability);
+                Files.deleteIfExists(dataFile);
+                SegmentedSnapshot.delete(segmentDir);
+            }
+            case SEGMENTED -> {
+                final boolean incremental = segmentsCurrent && taskList == journaled;
+                SegmentedSnapshot.write(segmentDir, snapshot, incremental ? dirtySegments : null, durability);
+                Files.deleteIfExists(dataFile);
+                Files.deleteIfExists(binaryFile);
+            }
+        }
+        segmentsCurrent = options.format() == SnapshotFormat.SEGMENTED;
+        dirtySegments.clear();
+        journal.clear();
+        journaled     = taskList;
+        journalSize   = 0;
+        journalOffset = 0;
+        jsonModified  = jsonModified();
+    }
+
+    private FileTime jsonModified() throws IOException {
+        return Files.exists(dataFile) ? Files.getLastModifiedTime(dataFile) : null;
+    }
+
+    /** Remembers the creation months whose segment no longer matches disk; a move only changes the order. */
+    private void markDirty(final List<TaskChange> changes) {
+        for (final TaskChange change : changes) {
+            if (change.type() != TaskChange.Type.MOVE) dirtySegments.add(SegmentedSnapshot.monthOf(change.task()));
+        }
+    }
 }
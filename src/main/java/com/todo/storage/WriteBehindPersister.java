@@ -0,0 +1,185 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Saves a {@link TaskList} on a background virtual thread. Callers mark the list dirty after each
+ * change; a burst of changes is coalesced into one {@link TaskRepository#save} once no change has
+ * arrived for the quiet period, or at the latest after the maximum delay. Deleted tasks handed
+ * to {@link #archive} are appended to the archive by the same thread, just before the save that
+ * drops them from the list. Failures are handed to the error callback on the saving thread.
+ */
+public class WriteBehindPersister implements AutoCloseable {
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(300);
+    public static final Duration DEFAULT_MAX_DELAY    = Duration.ofSeconds(2);
+
+    private final TaskRepository             repository;
+    private final TaskList                   taskList;
+    private final long                       quietNanos;
+    private final long                       maxDelayNanos;
+    private final Consumer<StorageException> onError;
+    private final ReentrantLock              lock    = new ReentrantLock();
+    private final Condition                  changed = lock.newCondition();
+    private final Condition                  saved   = lock.newCondition();
+    private final Thread                     worker;
+    private final List<Task>                 toArchive = new ArrayList<>();
+
+    // Guarded by lock. Every markDirty bumps 'requested'; a save that starts after request n covers
+    // it, so waiters compare generations instead of tracking individual changes. 'taken' is the
+    // generation claimed by the latest save, 'completed' the one last finished.
+    private long    requested;
+    private long    taken;
+    private long    completed;
+    private boolean lastSaveOk = true;
+    private long    firstChange;
+    private long    lastChange;
+    private boolean urgent;
+    private boolean closed;
+
+    public WriteBehindPersister(@NonNull final TaskRepository repository, @NonNull final TaskList taskList,
+                                @NonNull final Consumer<StorageException> onError) {
+        this(repository, taskList, DEFAULT_QUIET_PERIOD, DEFAULT_MAX_DELAY, onError);
+    }
+
+    public WriteBehindPersister(@NonNull final TaskRepository repository, @NonNull final TaskList taskList,
+                                @NonNull final Duration quietPeriod, @NonNull final Duration maxDelay,
+                                @NonNull final Consumer<StorageException> onError) {
+        this.repository    = repository;
+        this.taskList      = taskList;
+        this.quietNanos    = quietPeriod.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.onError       = onError;
+        this.worker        = Thread.ofVirtual().name("todo-persister").start(this::run);
+    }
+
+    public void markDirty() {
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            if (requested == taken) firstChange = now;
+            lastChange = now;
+            requested++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues deleted tasks for the archive and marks the list dirty. Tasks whose append fails are
+     * kept and tried again with the next save.
+     */
+    public void archive(@NonNull final List<Task> tasks) {
+        if (tasks.isEmpty()) return;
+        lock.lock();
+        try {
+            toArchive.addAll(tasks);
+            markDirty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Saves now and waits for it; returns whether that save succeeded. */
+    public boolean flush() {
+        lock.lock();
+        try {
+            if (closed) return lastSaveOk;
+            markDirty();
+            urgent = true;
+            final long target = requested;
+            while (completed < target) saved.awaitUninterruptibly();
+            return lastSaveOk;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Saves any pending changes and stops the background thread. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void run() {
+        while (true) {
+            final long       target;
+            final List<Task> archiving;
+            lock.lock();
+            try {
+                while (requested == completed && !closed) changed.awaitUninterruptibly();
+                if (requested == completed) return;
+                while (!urgent && !closed) {
+                    final long now  = System.nanoTime();
+                    final long wait = Math.min(lastChange + quietNanos, firstChange + maxDelayNanos) - now;
+                    if (wait <= 0) break;
+                    try {
+                        changed.awaitNanos(wait);
+                    } catch (InterruptedException ignored) {
+                        // only close() may stop the saver
+                    }
+                }
+                target    = requested;
+                taken     = target;
+                urgent    = false;
+                archiving = List.copyOf(toArchive);
+                toArchive.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            boolean ok = true;
+            try {
+                if (!archiving.isEmpty()) repository.saveDeleted(archiving);
+            } catch (StorageException e) {
+                ok = false;
+                lock.lock();
+                try {
+                    toArchive.addAll(0, archiving);
+                } finally {
+                    lock.unlock();
+                }
+                onError.accept(e);
+            }
+            try {
+                repository.save(taskList);
+            } catch (StorageException e) {
+                ok = false;
+                onError.accept(e);
+            }
+
+            lock.lock();
+            try {
+                completed  = target;
+                lastSaveOk = ok;
+                saved.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.todo.tui;
+
+import com.googlecode.lanterna.input.BasicCharacterPattern;
+import com.googlecode.lanterna.input.KeyDecodingProfile;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.ansi.StreamBasedTerminal;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Bracketed paste: once switched on, the terminal wraps pasted text in {@code ESC[200~} and
+ * {@code ESC[201~}, so a paste can be taken as text rather than as keys, where a line break in it
+ * would confirm the box it is pasted into and letters in the list would run commands. Lanterna
+ * knows neither marker; {@link #enable} teaches its decoder to turn them into {@link #START} and
+ * {@link #END}, which are told apart from other keys by identity.
+ */
+final class BracketedPaste {
+    static final KeyStroke START = new KeyStroke(KeyType.Unknown, false, false);
+    static final KeyStroke END   = new KeyStroke(KeyType.Unknown, false, false);
+
+    private BracketedPaste() {}
+
+    /** Switches bracketed paste on for {@code terminal}, if it is one that reads escape sequences. */
+    static void enable(final Terminal terminal) {
+        if (!(terminal instanceof StreamBasedTerminal ansi)) return;
+        ansi.getInputDecoder().addProfile(profile());
+        // Lanterna drops control characters from putString, so the switch goes out the way it comes in.
+        System.out.print("\033[?2004h");
+        System.out.flush();
+    }
+
+    static void disable(final Terminal terminal) {
+        if (!(terminal instanceof StreamBasedTerminal)) return;
+        System.out.print("\033[?2004l");
+        System.out.flush();
+    }
+
+    static KeyDecodingProfile profile() {
+        return () -> List.of(
+                new BasicCharacterPattern(START, KeyDecodingProfile.ESC_CODE, '[', '2', '0', '0', '~'),
+                new BasicCharacterPattern(END, KeyDecodingProfile.ESC_CODE, '[', '2', '0', '1', '~'));
+    }
+
+    /**
+     * Reads the rest of a paste, after {@link #START}, as one line of text: line breaks and tabs
+     * become spaces, and other keys are left out.
+     */
+    static String read(final Screen screen) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        while (true) {
+            final KeyStroke key = screen.readInput();
+            if (key == END || key.getKeyType() == KeyType.EOF) return text.toString();
+            switch (key.getKeyType()) {
+                case Character -> {
+                    if (!key.isCtrlDown() && !key.isAltDown()) text.append(key.getCharacter());
+                }
+                case Enter, Tab -> text.append(' ');
+                default -> {}
+            }
+        }
+    }
+}
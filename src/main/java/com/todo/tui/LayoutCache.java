@@ -0,0 +1,59 @@
+package com.todo.tui;
+
+import com.todo.model.Task;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Layouts of recently shown tasks, so a frame only wraps tasks whose text changed. Entries
+ * are keyed by task id and whether the timestamp is shown, for one width, and remember the text
+ * they were wrapped from. Every change to a task's text gives it a new string, so an entry whose
+ * text is not that very string is stale and is wrapped again. Tasks decoded afresh on every read
+ * carry equal copies instead, hence the fallback to {@code equals}. Beyond {@code capacity}
+ * entries the least recently used is dropped.
+ */
+final class LayoutCache {
+    private final int               width;
+    private final Map<Key, Layout>  layouts;
+    private final TextWrapper.Lines scratch = new TextWrapper.Lines();
+
+    LayoutCache(final int width, final int capacity) {
+        this.width   = width;
+        this.layouts = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Layout> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * How {@code task} is laid out, with its creation time if {@code timestamp}: after the last
+     * line if it fits there, else on a row of its own.
+     */
+    Layout layout(final Task task, final boolean timestamp) {
+        final Key    key    = new Key(task.id(), timestamp);
+        final Layout cached = layouts.get(key);
+        if (cached != null && (cached.text() == task.text() || cached.text().equals(task.text()))) return cached;
+        final TextWrapper.Lines lines  = TextWrapper.wrap(task.text(), width, scratch).copy();
+        final String            stamp  = timestamp && task.createdAt() != null ? "  " + ScreenRenderer.FMT.format(task.createdAt()) : "";
+        final boolean           below  = lines.width(lines.count() - 1) + stamp.length() > width && !stamp.isBlank();
+        final Layout            layout = new Layout(task.text(), lines, below ? stamp.strip() : stamp, below);
+        layouts.put(key, layout);
+        return layout;
+    }
+
+    int size() {
+        return layouts.size();
+    }
+
+    private record Key(long id, boolean timestamp) {}
+
+    /** Where {@code text} breaks into lines, and the timestamp drawn after them or, if {@code stampBelow}, under them. */
+    record Layout(String text, TextWrapper.Lines lines, String stamp, boolean stampBelow) {
+        int rows() {
+            return lines.count() + (stampBelow ? 1 : 0);
+        }
+    }
+}
@@ -11,16 +11,35 @@ import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.todo.model.Task;
 import com.todo.model.TaskList;
+import com.todo.model.TaskSnapshot;
+import com.todo.storage.ExternalChangeWatcher;
 import com.todo.storage.StorageException;
 import com.todo.storage.TaskRepository;
+import com.todo.storage.WriteBehindPersister;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 @RequiredArgsConstructor
 public class ListScreen {
+    private static final int POLL_MILLIS = 15;
+    /** Keys handled back to back before a frame is drawn anyway, so a held key never freezes the screen. */
+    private static final int BATCH_KEYS  = 64;
+    private static final int PICK_ROWS   = ScreenRenderer.TASK_END - ScreenRenderer.TASK_START;
+    /** Rows read either side of one outside the window: a frame's scroll and drawing then need one read. */
+    private static final int WINDOW_SPAN = 2 * (ScreenRenderer.TASK_END - ScreenRenderer.TASK_START + 1);
+
     @NonNull private final TaskList       taskList;
     @NonNull private final TaskRepository repository;
              private final boolean        showAll;
@@ -31,104 +50,238 @@ public class ListScreen {
             final Terminal terminal = new DefaultTerminalFactory()
                     .setInitialTerminalSize(new TerminalSize(ScreenRenderer.WIDTH, ScreenRenderer.HEIGHT))
                     .createTerminal();
-            final Screen         screen   = new TerminalScreen(terminal);
-            final ScreenRenderer renderer = new ScreenRenderer(taskList);
+            final Screen                  screen    = new TerminalScreen(terminal);
+            final ScreenRenderer          renderer  = new ScreenRenderer(taskList);
+            final AtomicReference<String> saveError = new AtomicReference<>();
+            final WriteBehindPersister    persister = new WriteBehindPersister(repository, taskList,
+                    e -> saveError.set(e.getMessage()));
+            final AtomicBoolean           external  = new AtomicBoolean();
+            // Marked ids with the creation time of the task marked, so an id reused after a merge
+            // never carries the mark over to another task.
+            final Map<Long, LocalDateTime> marked   = new LinkedHashMap<>();
+            renderer.setMarked(marked.keySet());
+            final ExternalChangeWatcher   watcher   = repository.watch(() -> external.set(true));
             screen.startScreen();
             screen.setCursorPosition(null);
+            BracketedPaste.enable(terminal);
 
-            int     cursor         = 0;
-            int     scrollOffset   = 0;
-            boolean showTimestamps = false;
+            int          cursor         = 0;
+            int          scrollOffset   = 0;
+            long         selectedId     = -1;
+            boolean      showTimestamps = false;
+            TaskWindow   window         = null;
+            TaskSnapshot shown          = null;
+            int          batched        = 0;
 
-            boolean saveError = false;
+            boolean saved = true;
             try {
                 while (true) {
-                    final List<Task> tasks = showAll ? taskList.getAll() : taskList.getOpen();
+                    final String error = saveError.getAndSet(null);
+                    if (error != null) renderer.setError(error);
+                    if (external.getAndSet(false)) cursor = refresh(renderer, selectedId, cursor);
+
+                    // A snapshot stays consistent while a background save merges other processes' changes.
+                    final TaskSnapshot snapshot   = taskList.snapshot();
+                    if (snapshot != shown && !marked.isEmpty()) unmarkMissing(marked);
+                    shown = snapshot;
+                    window = TaskWindow.over(showAll ? snapshot : snapshot.openView(), window, WINDOW_SPAN);
+                    final List<Task>   tasks      = window;
+                    final boolean      timestamps = showTimestamps;
                     if (!tasks.isEmpty() && cursor >= tasks.size()) cursor = tasks.size() - 1;
                     if (cursor < 0) cursor = 0;
-                    scrollOffset = adjustScroll(tasks, cursor, scrollOffset);
+                    selectedId   = tasks.isEmpty() ? -1 : tasks.get(cursor).id();
+                    scrollOffset = adjustScroll(i -> renderer.layout(tasks.get(i), timestamps).rows(),
+                            tasks.size(), cursor, scrollOffset);
 
-                    renderer.draw(screen, tasks, cursor, showTimestamps, scrollOffset);
-
-                    final KeyStroke key  = screen.readInput();
-                    final KeyType   type = key.getKeyType();
+                    // Keys already waiting are handled before the next frame, so a held ↓ or a fast
+                    // typist is never a frame per key behind.
+                    KeyStroke key = batched < BATCH_KEYS ? screen.pollInput() : null;
+                    if (key != null) {
+                        batched++;
+                    } else {
+                        batched = 0;
+                        renderer.draw(screen, tasks, cursor, showTimestamps, scrollOffset);
+                        key = readInput(screen, saveError, external);
+                        if (key == null) continue;
+                    }
+                    renderer.setError(null);
+                    final KeyType type = key.getKeyType();
 
-                    if (type == KeyType.ArrowUp && key.isShiftDown() && !tasks.isEmpty() && cursor > 0) {
+                    if (key == BracketedPaste.START) {
+                        // Pasted into the list rather than a text box: text, not a string of commands.
+                        BracketedPaste.read(screen);
+                    } else if (type == KeyType.ArrowUp && key.isShiftDown() && !tasks.isEmpty() && cursor > 0) {
                         final Task t = tasks.get(cursor);
-                        if (taskList.moveUp(taskList.getAll().indexOf(t))) cursor--;
+                        if (taskList.moveUpById(t.id())) {
+                            cursor--;
+                            persister.markDirty();
+                        }
                     } else if (type == KeyType.ArrowDown && key.isShiftDown() && !tasks.isEmpty() && cursor < tasks.size() - 1) {
                         final Task t = tasks.get(cursor);
-                        if (taskList.moveDown(taskList.getAll().indexOf(t))) cursor++;
+                        if (taskList.moveDownById(t.id())) {
+                            cursor++;
+                            persister.markDirty();
+                        }
+                    } else if ((type == KeyType.Home || type == KeyType.End) && key.isShiftDown() && !tasks.isEmpty()) {
+                        final Task t = tasks.get(cursor);
+                        if (taskList.moveById(t.id(), type == KeyType.Home ? 0 : Integer.MAX_VALUE)) {
+                            cursor = showAll ? taskList.indexOfId(t.id()) : taskList.openIndexOf(t.id());
+                            persister.markDirty();
+                        }
                     } else if (type == KeyType.ArrowUp) {
                         if (cursor > 0) cursor--;
                     } else if (type == KeyType.ArrowDown) {
                         if (cursor < tasks.size() - 1) cursor++;
+                    } else if (type == KeyType.Character && key.getCharacter() == ' ' && !tasks.isEmpty()) {
+                        final Task t = tasks.get(cursor);
+                        if (marked.remove(t.id()) == null) marked.put(t.id(), t.createdAt());
+                        if (cursor < tasks.size() - 1) cursor++;
+                    } else if (type == KeyType.Enter && !marked.isEmpty()) {
+                        taskList.batch(list -> marked.keySet().forEach(list::toggleDoneById));
+                        marked.clear();
+                        persister.markDirty();
                     } else if (type == KeyType.Enter && !tasks.isEmpty()) {
                         final Task t = tasks.get(cursor);
-                        taskList.toggleDone(taskList.getAll().indexOf(t));
-                        repository.save(taskList);
+                        taskList.toggleDoneById(t.id());
+                        persister.markDirty();
                     } else if (type == KeyType.Character && key.getCharacter() == 'a') {
                         final String text = addInline(screen, renderer, tasks);
                         if (text != null && !text.isBlank()) {
                             taskList.add(text.trim());
-                            repository.save(taskList);
-                            cursor = showAll ? taskList.getAll().size() - 1 : taskList.getOpen().size() - 1;
+                            persister.markDirty();
+                            cursor = showAll ? taskList.getAll().size() - 1 : taskList.openCount() - 1;
                         }
+                    } else if (type == KeyType.Character && key.getCharacter() == 'd' && !marked.isEmpty()) {
+                        // In list order, so the archive reads the same as the list did.
+                        final List<Long> ids      = marked.keySet().stream()
+                                .sorted(Comparator.comparingInt(taskList::indexOfId))
+                                .toList();
+                        final List<Task> archived = new ArrayList<>();
+                        taskList.batch(list -> ids.forEach(id -> {
+                            final Task t = list.deleteById(id);
+                            if (t != null && !t.done()) archived.add(t);
+                        }));
+                        marked.clear();
+                        persister.archive(archived);
+                        persister.markDirty();
                     } else if (type == KeyType.Character && key.getCharacter() == 'd' && !tasks.isEmpty()) {
                         final Task t = tasks.get(cursor);
-                        taskList.delete(taskList.getAll().indexOf(t));
-                        if (!t.done()) repository.saveDeleted(t);
-                        repository.save(taskList);
-                        if (cursor > 0 && cursor >= tasks.size() - 1) cursor--;
+                        taskList.deleteById(t.id());
+                        if (!t.done()) persister.archive(List.of(t));
+                        persister.markDirty();
                     } else if (type == KeyType.Character && key.getCharacter() == 'e' && !tasks.isEmpty()) {
                         final Task   t      = tasks.get(cursor);
                         final String edited = editInline(screen, renderer, tasks, cursor, t.text(), scrollOffset);
                         if (edited != null && !edited.isBlank()) {
-                            taskList.updateText(taskList.getAll().indexOf(t), edited.trim());
-                            repository.save(taskList);
+                            taskList.updateTextById(t.id(), edited.trim());
+                            persister.markDirty();
                         }
+                    } else if (type == KeyType.Character && key.getCharacter() == '/') {
+                        cursor = jump(pick(screen, renderer, "/", query -> taskList.search(query, PICK_ROWS, showAll)), cursor);
+                    } else if (type == KeyType.Character && key.isCtrlDown() && key.getCharacter() == 'p') {
+                        cursor = jump(pick(screen, renderer, ">", query -> taskList.fuzzySearch(query, PICK_ROWS, showAll)), cursor);
+                    } else if (type == KeyType.Character && key.getCharacter() == 'u') {
+                        if (taskList.undo()) persister.markDirty();
+                    } else if (type == KeyType.Character && key.isCtrlDown() && key.getCharacter() == 'r') {
+                        if (taskList.redo()) persister.markDirty();
                     } else if (type == KeyType.Character && key.getCharacter() == 't') {
                         showTimestamps = !showTimestamps;
                     } else if (type == KeyType.Character && key.isCtrlDown() && key.getCharacter() == 's') {
-                        repository.save(taskList);
-                        renderer.showSaved(screen, tasks, cursor, showTimestamps, scrollOffset);
+                        if (persister.flush()) renderer.showSaved(screen, tasks, cursor, showTimestamps, scrollOffset);
                     } else if (type == KeyType.Character && key.getCharacter() == 'q') {
                         break;
+                    } else if (type == KeyType.Escape && !marked.isEmpty()) {
+                        marked.clear();
                     } else if (type == KeyType.Escape) {
                         break;
                     } else if (type == KeyType.EOF) {
                         break;
                     }
                 }
-            } catch (StorageException e) {
-                saveError = true;
-                try { renderer.showError(screen, e.getMessage()); } catch (IOException ignored) {}
             } finally {
+                watcher.close();
+                saved = persister.flush();
+                persister.close();
+                BracketedPaste.disable(terminal);
                 screen.stopScreen();
                 terminal.close();
-                if (!saveError) {
-                    try { repository.save(taskList); } catch (StorageException ignored) {}
-                }
             }
+            if (!saved) System.err.println("Error: " + saveError.get());
         } catch (IOException e) {
             System.err.println("TUI error: " + e.getMessage());
         }
     }
 
-    private int adjustScroll(final List<Task> tasks, final int cursor, int scrollOffset) {
-        if (tasks.isEmpty()) return 0;
+    /**
+     * Drops the marks of tasks that a refresh, undo, redo or merge removed or hid, or whose id now
+     * names a different task.
+     */
+    private void unmarkMissing(final Map<Long, LocalDateTime> marked) {
+        marked.entrySet().removeIf(e -> {
+            final Task t = taskList.findById(e.getKey());
+            return t == null || !t.createdAt().equals(e.getValue()) || !showAll && t.done();
+        });
+    }
+
+    /**
+     * Merges what other processes saved and returns the cursor position of the task that was
+     * selected, so the selection stays put while rows are added or removed around it.
+     */
+    private int refresh(final ScreenRenderer renderer, final long selectedId, final int cursor) {
+        try {
+            if (!repository.refresh(taskList)) return cursor;
+        } catch (StorageException e) {
+            renderer.setError(e.getMessage());
+            return cursor;
+        }
+        final int index = showAll ? taskList.indexOfId(selectedId) : taskList.openIndexOf(selectedId);
+        return index >= 0 ? index : cursor;
+    }
+
+    /** Cursor position of {@code task} in the list shown, or {@code cursor} if there is none. */
+    private int jump(final Task task, final int cursor) {
+        if (task == null) return cursor;
+        final int index = showAll ? taskList.indexOfId(task.id()) : taskList.openIndexOf(task.id());
+        return index >= 0 ? index : cursor;
+    }
+
+    /**
+     * Waits for the next key. Returns null early when a background save has failed or another
+     * process has saved, so the screen is updated without waiting for the user to press something.
+     */
+    private static KeyStroke readInput(final Screen screen, final AtomicReference<String> saveError,
+                                       final AtomicBoolean external) throws IOException {
+        while (true) {
+            final KeyStroke key = screen.pollInput();
+            if (key != null) return key;
+            if (saveError.get() != null || external.get()) return null;
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return screen.readInput();
+            }
+        }
+    }
+
+    /**
+     * First task to draw so that the cursor's first row is on screen: {@code scrollOffset} if it
+     * still is, else the lowest offset for which the tasks above the cursor fit. Every task takes
+     * at least one row, so walking back from the cursor ends within a screenful of tasks, however
+     * far the cursor jumped or however long the list is.
+     */
+    static int adjustScroll(final IntUnaryOperator rows, final int size, final int cursor, final int scrollOffset) {
+        if (size == 0) return 0;
         if (cursor < scrollOffset) return cursor;
         final int available = ScreenRenderer.TASK_END - ScreenRenderer.TASK_START + 1;
-        while (scrollOffset <= cursor) {
-            int rows = 0;
-            for (int i = scrollOffset; i < tasks.size(); i++) {
-                rows += TextWrapper.wrapText(tasks.get(i).text(), ScreenRenderer.TEXT_WIDTH).size();
-                if (i == cursor) return scrollOffset;
-                if (rows >= available) break;
-            }
-            scrollOffset++;
+        int first = cursor;
+        int above = 0;
+        while (first > scrollOffset) {
+            above += rows.applyAsInt(first - 1);
+            if (above >= available) break;
+            first--;
         }
-        return Math.min(scrollOffset, cursor);
+        return first;
     }
 
     private String addInline(final Screen screen, final ScreenRenderer renderer,
@@ -136,8 +289,7 @@ public class ListScreen {
         final StringBuilder buf = new StringBuilder();
 
         while (true) {
-            screen.clear();
-            final TextGraphics g = screen.newTextGraphics();
+            final TextGraphics g = ScreenRenderer.newFrame(screen);
 
             renderer.drawHeader(g);
 
@@ -153,28 +305,90 @@ public class ListScreen {
             renderer.drawHints(g, ScreenRenderer.HEIGHT - 2, "Enter", "confirm", "Esc", "cancel");
             screen.refresh();
 
-            final KeyStroke key  = screen.readInput();
-            final KeyType   type = key.getKeyType();
-
-            if (type == KeyType.Enter) {
-                return buf.toString();
-            } else if (type == KeyType.Escape) {
-                return null;
-            } else if (type == KeyType.Backspace) {
-                if (!buf.isEmpty()) buf.deleteCharAt(buf.length() - 1);
-            } else if (type == KeyType.Character && !key.isCtrlDown()) {
-                buf.append(key.getCharacter());
+            for (int n = 0; n < BATCH_KEYS; n++) {
+                final KeyStroke key = n == 0 ? screen.readInput() : screen.pollInput();
+                if (key == null) break;
+                final KeyType type = key.getKeyType();
+
+                if (key == BracketedPaste.START) {
+                    buf.append(BracketedPaste.read(screen));
+                } else if (type == KeyType.Enter) {
+                    return buf.toString();
+                } else if (type == KeyType.Escape) {
+                    return null;
+                } else if (type == KeyType.Backspace) {
+                    if (!buf.isEmpty()) buf.deleteCharAt(buf.length() - 1);
+                } else if (type == KeyType.Character && !key.isCtrlDown()) {
+                    buf.append(key.getCharacter());
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks {@code query} up again on every keystroke and lets the user choose among the matches
+     * with ↑↓ and Enter. Returns the chosen task, or null if cancelled with Esc.
+     */
+    private Task pick(final Screen screen, final ScreenRenderer renderer, final String label,
+                      final Function<String, List<Task>> query) throws IOException {
+        final StringBuilder buf     = new StringBuilder();
+        List<Task>          matches = List.of();
+        int                 chosen  = 0;
+
+        while (true) {
+            final TextGraphics g = ScreenRenderer.newFrame(screen);
+
+            renderer.drawHeader(g);
+
+            final int nextRow = Math.min(
+                    renderer.drawTaskList(g, matches, chosen, ScreenRenderer.TASK_START, false, 0, ScreenRenderer.TASK_END - 1),
+                    ScreenRenderer.TASK_END);
+
+            g.setForegroundColor(TextColor.ANSI.CYAN);
+            g.putString(0, nextRow, "  [" + label + "] " + buf + "_");
+
+            g.setForegroundColor(TextColor.ANSI.DEFAULT);
+            g.putString(0, ScreenRenderer.HEIGHT - 3, "─".repeat(ScreenRenderer.WIDTH));
+            renderer.drawHints(g, ScreenRenderer.HEIGHT - 2, "↑↓", "choose", "Enter", "jump", "Esc", "cancel");
+            screen.refresh();
+
+            for (int n = 0; n < BATCH_KEYS; n++) {
+                final KeyStroke key = n == 0 ? screen.readInput() : screen.pollInput();
+                if (key == null) break;
+                final KeyType type = key.getKeyType();
+
+                if (key == BracketedPaste.START) {
+                    buf.append(BracketedPaste.read(screen));
+                    matches = query.apply(buf.toString());
+                    chosen  = 0;
+                } else if (type == KeyType.Enter) {
+                    return matches.isEmpty() ? null : matches.get(chosen);
+                } else if (type == KeyType.Escape) {
+                    return null;
+                } else if (type == KeyType.ArrowUp) {
+                    if (chosen > 0) chosen--;
+                } else if (type == KeyType.ArrowDown) {
+                    if (chosen < matches.size() - 1) chosen++;
+                } else if (type == KeyType.Backspace || type == KeyType.Character && !key.isCtrlDown()) {
+                    if (type == KeyType.Character) {
+                        buf.append(key.getCharacter());
+                    } else if (!buf.isEmpty()) {
+                        buf.deleteCharAt(buf.length() - 1);
+                    }
+                    matches = query.apply(buf.toString());
+                    chosen  = 0;
+                }
             }
         }
     }
 
     private String editInline(final Screen screen, final ScreenRenderer renderer, final List<Task> tasks,
                                final int cursor, final String current, final int scrollOffset) throws IOException {
-        final StringBuilder buf = new StringBuilder(current);
+        final StringBuilder     buf   = new StringBuilder(current);
+        final TextWrapper.Lines lines = new TextWrapper.Lines();
 
         while (true) {
-            screen.clear();
-            final TextGraphics g = screen.newTextGraphics();
+            final TextGraphics g = ScreenRenderer.newFrame(screen);
 
             renderer.drawHeader(g);
 
@@ -183,26 +397,21 @@ public class ListScreen {
                 if (row > ScreenRenderer.TASK_END) break;
                 final String num = String.format("%2d", i + 1);
                 if (i == cursor) {
-                    final List<String> lines = TextWrapper.wrapText(buf.toString(), ScreenRenderer.TEXT_WIDTH);
+                    final String prefix = "▶ " + num + ". [e] ";
+                    TextWrapper.wrap(buf, ScreenRenderer.TEXT_WIDTH, lines);
                     g.setForegroundColor(TextColor.ANSI.CYAN);
-                    g.putString(0, row, "▶ " + num + ". [e] " + lines.get(0) + (lines.size() == 1 ? "_" : ""));
-                    for (int j = 1; j < lines.size(); j++) {
-                        if (row + j > ScreenRenderer.TASK_END) break;
-                        g.putString(0, row + j, "          " + lines.get(j) + (j == lines.size() - 1 ? "_" : ""));
-                    }
-                    row += lines.size();
+                    g.putString(0, row, prefix);
+                    final int end = ScreenRenderer.drawLines(g, prefix.length(), row, ScreenRenderer.TASK_END, buf, lines);
+                    if (end >= 0) g.putString(end, row + lines.count() - 1, "_");
+                    row += lines.count();
                 } else {
-                    final Task         t     = tasks.get(i);
-                    final List<String> lines = TextWrapper.wrapWithTimestamp(t.text(),
-                            t.createdAt() != null ? "  " + ScreenRenderer.FMT.format(t.createdAt()) : "",
-                            ScreenRenderer.TEXT_WIDTH);
+                    final Task               t      = tasks.get(i);
+                    final String             prefix = "  " + num + ". " + (t.done() ? "[x] " : "[ ] ");
+                    final LayoutCache.Layout layout = renderer.layout(t, true);
                     g.setForegroundColor(t.done() ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
-                    g.putString(0, row, "  " + num + ". " + (t.done() ? "[x] " : "[ ] ") + lines.get(0));
-                    for (int j = 1; j < lines.size(); j++) {
-                        if (row + j > ScreenRenderer.TASK_END) break;
-                        g.putString(0, row + j, "          " + lines.get(j));
-                    }
-                    row += lines.size();
+                    g.putString(0, row, prefix);
+                    ScreenRenderer.drawLayout(g, prefix.length(), row, ScreenRenderer.TASK_END, layout);
+                    row += layout.rows();
                 }
             }
 
@@ -211,19 +420,24 @@ public class ListScreen {
             renderer.drawHints(g, ScreenRenderer.HEIGHT - 2, "Enter", "confirm", "Esc", "cancel");
             screen.refresh();
 
-            final KeyStroke key  = screen.readInput();
-            final KeyType   type = key.getKeyType();
-
-            if (type == KeyType.Enter) {
-                return buf.toString();
-            } else if (type == KeyType.Character && key.isCtrlDown() && key.getCharacter() == 's') {
-                return buf.toString();
-            } else if (type == KeyType.Escape) {
-                return null;
-            } else if (type == KeyType.Backspace) {
-                if (!buf.isEmpty()) buf.deleteCharAt(buf.length() - 1);
-            } else if (type == KeyType.Character && !key.isCtrlDown()) {
-                buf.append(key.getCharacter());
+            for (int n = 0; n < BATCH_KEYS; n++) {
+                final KeyStroke key = n == 0 ? screen.readInput() : screen.pollInput();
+                if (key == null) break;
+                final KeyType type = key.getKeyType();
+
+                if (key == BracketedPaste.START) {
+                    buf.append(BracketedPaste.read(screen));
+                } else if (type == KeyType.Enter) {
+                    return buf.toString();
+                } else if (type == KeyType.Character && key.isCtrlDown() && key.getCharacter() == 's') {
+                    return buf.toString();
+                } else if (type == KeyType.Escape) {
+                    return null;
+                } else if (type == KeyType.Backspace) {
+                    if (!buf.isEmpty()) buf.deleteCharAt(buf.length() - 1);
+                } else if (type == KeyType.Character && !key.isCtrlDown()) {
+                    buf.append(key.getCharacter());
+                }
             }
         }
     }
@@ -5,6 +5,7 @@ import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.screen.Screen;
 import com.todo.model.Task;
 import com.todo.model.TaskList;
+import com.todo.model.TaskStats;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
 
 @RequiredArgsConstructor
 class ScreenRenderer {
@@ -22,14 +24,37 @@ class ScreenRenderer {
     static final int               TASK_START = 3;
     static final int               TASK_END   = HEIGHT - 4;
     static final DateTimeFormatter FMT        = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    static final DateTimeFormatter DAY        = DateTimeFormatter.ISO_LOCAL_DATE;
+    static final int               LAYOUTS    = 4096;
+
+    @NonNull private final TaskList    taskList;
+             private final LayoutCache layouts = new LayoutCache(TEXT_WIDTH, LAYOUTS);
+             private       String      error;
+             private       LocalDate   today;
+             private       String      todayText;
+             private       Set<Long>   marked = Set.of();
+             private       List<Task>  shownTasks;
+             private       boolean     shownTimestamps;
+             private       int         shownOffset;
+
+    /** Shows {@code message} above the header until cleared with {@code null}. */
+    void setError(final String message) {
+        this.error = message;
+    }
 
-    @NonNull private final TaskList taskList;
+    /** Ids of the tasks selected for a bulk action, flagged with a dot next to the cursor column. */
+    void setMarked(@NonNull final Set<Long> marked) {
+        this.marked = marked;
+    }
 
     void drawHeader(final TextGraphics g) {
-        final long   done      = taskList.getAll().stream().filter(Task::done).count();
-        final long   remaining = taskList.getAll().size() - done;
-        final String date      = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        final String right     = done + " done · " + remaining + " remaining · " + date;
+        if (error != null) {
+            g.setForegroundColor(TextColor.ANSI.RED);
+            g.putString(0, 0, " Error: " + error);
+        }
+
+        final TaskStats stats = taskList.stats();
+        final String    right = stats.done() + " done · " + stats.open() + " remaining · " + today();
 
         g.setForegroundColor(TextColor.ANSI.CYAN);
         g.putString(0, 1, " Todo");
@@ -39,6 +64,47 @@ class ScreenRenderer {
         g.putString(0, 2, "─".repeat(WIDTH));
     }
 
+    /** How {@code task} is laid out on screen, from the cache unless its text changed since last shown. */
+    LayoutCache.Layout layout(final Task task, final boolean showTimestamps) {
+        return layouts.layout(task, showTimestamps);
+    }
+
+    /**
+     * Draws {@code lines} of {@code text}, the first from {@code column} of {@code row} and the
+     * rest below it at {@link #TEXT_START}, none past {@code maxRow}. Returns the column after the
+     * last line, or -1 if that line fell below {@code maxRow}.
+     */
+    static int drawLines(final TextGraphics g, final int column, final int row, final int maxRow,
+                         final CharSequence text, final TextWrapper.Lines lines) {
+        int end = -1;
+        for (int j = 0; j < lines.count() && row + j <= maxRow; j++) {
+            end = TextWrapper.draw(g, j == 0 ? column : TEXT_START, row + j, text, lines.start(j), lines.end(j));
+        }
+        return row + lines.count() - 1 <= maxRow ? end : -1;
+    }
+
+    /** Draws a task's text and timestamp as {@link #drawLines} does. */
+    static void drawLayout(final TextGraphics g, final int column, final int row, final int maxRow,
+                           final LayoutCache.Layout layout) {
+        final int end  = drawLines(g, column, row, maxRow, layout.text(), layout.lines());
+        final int last = row + layout.lines().count() - 1;
+        if (layout.stampBelow()) {
+            if (last < maxRow) g.putString(TEXT_START, last + 1, layout.stamp());
+        } else if (end >= 0 && !layout.stamp().isEmpty()) {
+            g.putString(end, last, layout.stamp());
+        }
+    }
+
+    /** Today's date for the header, formatted once per day rather than once per frame. */
+    private String today() {
+        final LocalDate now = LocalDate.now();
+        if (!now.equals(today)) {
+            today     = now;
+            todayText = DAY.format(now);
+        }
+        return todayText;
+    }
+
     int drawTaskList(final TextGraphics g, final List<Task> tasks, final int cursor,
                      final int startRow, final boolean showTimestamps, final int scrollOffset) {
         return drawTaskList(g, tasks, cursor, startRow, showTimestamps, scrollOffset, TASK_END);
@@ -49,27 +115,35 @@ class ScreenRenderer {
         int row = startRow;
         for (int i = scrollOffset; i < tasks.size(); i++) {
             if (row > maxRow) break;
-            final Task         t      = tasks.get(i);
-            final boolean      active = (i == cursor);
-            final String       prefix = (active ? "▶ " : "  ") + String.format("%2d", i + 1) + ". " + (t.done() ? "[x] " : "[ ] ");
-            final String       ts     = showTimestamps && t.createdAt() != null ? "  " + FMT.format(t.createdAt()) : "";
-            final List<String> lines  = TextWrapper.wrapWithTimestamp(t.text(), ts, TEXT_WIDTH);
+            final Task               t      = tasks.get(i);
+            final boolean            active = (i == cursor);
+            final String             prefix = (active ? "▶" : " ") + (marked.contains(t.id()) ? "•" : " ") + String.format("%2d", i + 1) + ". " + (t.done() ? "[x] " : "[ ] ");
+            final LayoutCache.Layout layout = layouts.layout(t, showTimestamps);
 
             g.setForegroundColor(t.done() ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
-            g.putString(0, row, prefix + lines.get(0));
-            for (int j = 1; j < lines.size(); j++) {
-                if (row + j > maxRow) break;
-                g.putString(0, row + j, "          " + lines.get(j));
-            }
-            row += lines.size();
+            g.putString(0, row, prefix);
+            drawLayout(g, prefix.length(), row, maxRow, layout);
+            row += layout.rows();
         }
         return row;
     }
 
+    /**
+     * Graphics for drawing a frame over the previous one, with every cell blanked first. Unlike
+     * {@link Screen#clear()}, which makes the next refresh repaint the whole terminal, this lets
+     * Lanterna compare the frame with what is on screen and send only the cells that changed,
+     * which is what keeps a keystroke down to a few dozen bytes over a slow link.
+     */
+    static TextGraphics newFrame(final Screen screen) {
+        final TextGraphics g = screen.newTextGraphics();
+        g.fill(' ');
+        return g;
+    }
+
     void draw(final Screen screen, final List<Task> tasks, final int cursor,
               final boolean showTimestamps, final int scrollOffset) throws IOException {
-        screen.clear();
-        final TextGraphics g = screen.newTextGraphics();
+        scroll(screen, tasks, showTimestamps, scrollOffset);
+        final TextGraphics g = newFrame(screen);
 
         drawHeader(g);
 
@@ -82,15 +156,36 @@ class ScreenRenderer {
 
         g.setForegroundColor(TextColor.ANSI.DEFAULT);
         g.putString(0, HEIGHT - 3, "─".repeat(WIDTH));
-        drawHints(g, HEIGHT - 2, "↑↓", "navigate", "Enter", "toggle", "a", "add", "d", "delete", "e", "edit", "t", "timestamps", "Shift+↑↓", "move", "q", "quit");
+        drawHints(g, HEIGHT - 2, "↑↓", "navigate", "Enter", "toggle", "a", "add", "d", "delete", "e", "edit", "t", "timestamps", "Shift+↑↓", "move");
+        drawHints(g, HEIGHT - 1, "/", "search", "Ctrl+P", "jump", "Space", "select", "u", "undo", "Ctrl+R", "redo", "q", "quit");
 
         screen.refresh();
     }
 
+    /**
+     * When the list on screen only scrolled since the last frame, has the terminal shift the rows
+     * that stay visible rather than being sent them again; the rows that came into view are all
+     * that then differ.
+     */
+    private void scroll(final Screen screen, final List<Task> tasks, final boolean showTimestamps, final int scrollOffset) {
+        if (tasks == shownTasks && showTimestamps == shownTimestamps && scrollOffset != shownOffset) {
+            final int available = TASK_END - TASK_START + 1;
+            int rows = 0;
+            for (int i = Math.min(scrollOffset, shownOffset); i < Math.max(scrollOffset, shownOffset) && rows < available; i++) {
+                rows += layouts.layout(tasks.get(i), showTimestamps).rows();
+            }
+            if (rows < available) screen.scrollLines(TASK_START, TASK_END, scrollOffset > shownOffset ? rows : -rows);
+        }
+        shownTasks      = tasks;
+        shownTimestamps = showTimestamps;
+        shownOffset     = scrollOffset;
+    }
+
+    /** Flashes a confirmation above the header of the frame on screen, then draws it without. */
     void showSaved(final Screen screen, final List<Task> tasks, final int cursor,
                    final boolean showTimestamps, final int scrollOffset) throws IOException {
-        screen.clear();
         final TextGraphics g = screen.newTextGraphics();
+        g.putString(0, 0, " ".repeat(WIDTH));
         g.setForegroundColor(TextColor.ANSI.GREEN);
         g.putString(0, 0, "✔ Saved.");
         screen.refresh();
@@ -98,17 +193,6 @@ class ScreenRenderer {
         draw(screen, tasks, cursor, showTimestamps, scrollOffset);
     }
 
-    void showError(final Screen screen, final String message) throws IOException {
-        screen.clear();
-        final TextGraphics g = screen.newTextGraphics();
-        g.setForegroundColor(TextColor.ANSI.RED);
-        g.putString(0, 0, " Error: " + message);
-        g.setForegroundColor(TextColor.ANSI.YELLOW);
-        g.putString(0, 2, " Press any key to exit.");
-        screen.refresh();
-        try { screen.readInput(); } catch (IOException ignored) {}
-    }
-
     void drawHints(final TextGraphics g, final int row, final String... pairs) {
         int col = 2;
         for (int i = 0; i < pairs.length; i += 2) {
@@ -0,0 +1,44 @@
+package com.todo.tui;
+
+import com.todo.model.Task;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of tasks as the screen reads it: only the rows around the one last asked for are
+ * materialized, fetched together with {@link List#subList} and kept for as long as the same list
+ * is on screen. A row outside them fetches the rows {@code span} either side of it instead, so a
+ * frame costs the same however long the list, and tasks far from the cursor are never decoded.
+ */
+final class TaskWindow extends AbstractList<Task> implements RandomAccess {
+    private final List<Task> tasks;
+    private final int        span;
+    private       List<Task> window = List.of();
+    private       int        from;
+
+    private TaskWindow(final List<Task> tasks, final int span) {
+        this.tasks = tasks;
+        this.span  = span;
+    }
+
+    /** {@code previous} if it is over {@code tasks} already, else a new, empty window over them. */
+    static TaskWindow over(final List<Task> tasks, final TaskWindow previous, final int span) {
+        return previous != null && previous.tasks == tasks ? previous : new TaskWindow(tasks, span);
+    }
+
+    @Override
+    public Task get(final int index) {
+        if (index < from || index >= from + window.size()) {
+            from   = Math.max(0, index - span);
+            window = tasks.subList(from, Math.min(tasks.size(), Math.max(index + 1, index + span)));
+        }
+        return window.get(index - from);
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+}
@@ -1,32 +1,200 @@
 package com.todo.tui;
 
+import com.googlecode.lanterna.TerminalTextUtils;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.graphics.TextGraphics;
+
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static java.util.Objects.checkIndex;
+
+/**
+ * Word wrapping by terminal columns. {@link #wrap} finds where a text breaks without copying any
+ * of it, and {@link #draw} puts a range of it on screen a cell at a time. Widths follow what
+ * Lanterna draws: CJK and characters outside the BMP take two columns, and combining marks none,
+ * staying in the cell of the character they follow.
+ */
 public class TextWrapper {
+    /** Below this no character combines with the one before it: U+0300 is the first combining mark. */
+    private static final char FIRST_MARK = '\u0300';
+    /** Below this no character is wide: U+1100 starts the Hangul jamo. */
+    private static final char FIRST_WIDE = '\u1100';
+
     private TextWrapper() {}
 
-    public static List<String> wrapText(String text, final int maxWidth) {
-        final List<String> lines = new ArrayList<>();
-        while (text.length() > maxWidth) {
-            int breakAt   = maxWidth;
-            int lastSpace = text.lastIndexOf(' ', maxWidth);
-            if (lastSpace > maxWidth / 2) breakAt = lastSpace;
-            lines.add(text.substring(0, breakAt).stripTrailing());
-            text = text.substring(breakAt).stripLeading();
+    /**
+     * Where a text breaks into lines: for each line the offset of its first char, the offset just
+     * past its last, and the columns it takes. One instance is reused from text to text, so
+     * wrapping allocates only for a text with more lines than any before it.
+     */
+    public static final class Lines {
+        private int[] bounds;
+        private int   count;
+
+        public Lines() {
+            this(4);
+        }
+
+        private Lines(final int capacity) {
+            bounds = new int[3 * capacity];
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public int start(final int line) {
+            return bounds[3 * checkIndex(line, count)];
+        }
+
+        public int end(final int line) {
+            return bounds[3 * checkIndex(line, count) + 1];
+        }
+
+        public int width(final int line) {
+            return bounds[3 * checkIndex(line, count) + 2];
+        }
+
+        /** A copy sized to these lines, to keep once this instance has moved on to another text. */
+        public Lines copy() {
+            final Lines copy = new Lines(count);
+            System.arraycopy(bounds, 0, copy.bounds, 0, 3 * count);
+            copy.count = count;
+            return copy;
         }
-        lines.add(text);
-        return lines;
+
+        private void add(final int start, final int end, final int width) {
+            if (3 * count == bounds.length) bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+            bounds[3 * count]     = start;
+            bounds[3 * count + 1] = end;
+            bounds[3 * count + 2] = width;
+            count++;
+        }
+    }
+
+    /**
+     * Breaks {@code text} into lines of at most {@code maxWidth} columns, at the last space if that
+     * is past the middle of the line and mid-word otherwise, into {@code into}. Whitespace around a
+     * break is left out of both lines. Returns {@code into}.
+     */
+    public static Lines wrap(final CharSequence text, final int maxWidth, final Lines into) {
+        into.count = 0;
+        final int length = text.length();
+        int start = 0;
+        while (true) {
+            int i = start, used = 0, space = -1, spaceColumn = 0;
+            for (; i < length; i++) {
+                final char c     = text.charAt(i);
+                final int  width = c < FIRST_MARK ? 1 : width(text, i);
+                if (width > 0 && used + width > maxWidth && i > start) break;
+                if (c == ' ') {
+                    space       = i;
+                    spaceColumn = used;
+                }
+                used += width;
+            }
+            if (i == length) {
+                into.add(start, length, used);
+                return into;
+            }
+            if (text.charAt(i) == ' ') {
+                space       = i;
+                spaceColumn = used;
+            }
+            int end    = i;
+            int column = used;
+            if (space >= 0 && spaceColumn > maxWidth / 2) {
+                end    = space;
+                column = spaceColumn;
+            }
+            int next = end;
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                column -= width(text, end - 1);
+                end--;
+            }
+            into.add(start, end, column);
+            while (next < length && Character.isWhitespace(text.charAt(next))) next++;
+            start = next;
+        }
+    }
+
+    /** The lines of {@code text} as strings; {@link #wrap} is the allocation-free form. */
+    public static List<String> wrapText(final String text, final int maxWidth) {
+        final Lines        lines  = wrap(text, maxWidth, new Lines());
+        final List<String> result = new ArrayList<>(lines.count());
+        for (int i = 0; i < lines.count(); i++) result.add(text.substring(lines.start(i), lines.end(i)));
+        return result;
+    }
+
+    /**
+     * Draws the chars of {@code text} from {@code start} to {@code end} at {@code column} of
+     * {@code row} in the colours and modifiers of {@code g}, and returns the column after them.
+     * A combining mark is composed into the character before it where Unicode has a single
+     * character for the pair, and otherwise dropped, since a cell holds one character.
+     */
+    public static int draw(final TextGraphics g, int column, final int row,
+                           final CharSequence text, final int start, final int end) {
+        int i = start;
+        while (i < end) {
+            final int  next  = Math.min(end, clusterEnd(text, i));
+            final int  width = width(text, i);
+            final char c     = text.charAt(i);
+            if (width == 0) {
+                // A mark with nothing before it to combine with takes no cell.
+            } else if (next == i + 1) {
+                g.setCharacter(column, row, Character.isISOControl(c) ? ' ' : c);
+            } else {
+                g.setCharacter(column, row, cluster(g, text, i, next));
+            }
+            column += width;
+            i       = next;
+        }
+        return column;
+    }
+
+    /** A cell for the character at {@code i} together with the marks up to {@code next}. */
+    private static TextCharacter cluster(final TextGraphics g, final CharSequence text, final int i, final int next) {
+        final int    base     = Character.codePointAt(text, i);
+        final String composed = Normalizer.normalize(text.subSequence(i, next), Normalizer.Form.NFC);
+        final String cell     = composed.length() == 1 || TerminalTextUtils.isCharThai(text.charAt(i))
+                ? composed
+                : Character.toString(base);
+        return TextCharacter.fromString(cell, g.getForegroundColor(), g.getBackgroundColor(), g.getActiveModifiers())[0];
     }
 
-    public static List<String> wrapWithTimestamp(final String text, final String ts, final int maxWidth) {
-        final List<String> lines    = wrapText(text, maxWidth);
-        final String       lastLine = lines.get(lines.size() - 1);
-        if ((lastLine + ts).length() <= maxWidth) {
-            lines.set(lines.size() - 1, lastLine + ts);
-        } else if (!ts.isBlank()) {
-            lines.add(ts.strip());
+    /**
+     * Columns taken by the char at {@code i}: none for a combining mark or the second half of a
+     * surrogate pair, two for a wide character or the first half of a pair, else one.
+     */
+    private static int width(final CharSequence text, final int i) {
+        final char c = text.charAt(i);
+        if (c < FIRST_MARK) return 1;
+        if (Character.isLowSurrogate(c)) return 0;
+        final int codePoint = Character.codePointAt(text, i);
+        if (combines(codePoint)) return 0;
+        return Character.isSupplementaryCodePoint(codePoint) || c >= FIRST_WIDE && TerminalTextUtils.isCharCJK(c) ? 2 : 1;
+    }
+
+    /** The offset past the character at {@code i} and the combining marks after it. */
+    private static int clusterEnd(final CharSequence text, final int i) {
+        final int length = text.length();
+        int next = Character.isHighSurrogate(text.charAt(i)) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))
+                ? i + 2
+                : i + 1;
+        while (next < length && text.charAt(next) >= FIRST_MARK) {
+            final int cp = Character.codePointAt(text, next);
+            if (!combines(cp)) break;
+            next += Character.charCount(cp);
         }
-        return lines;
+        return next;
+    }
+
+    private static boolean combines(final int codePoint) {
+        final int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || codePoint == 0x200C || codePoint == 0x200D;
     }
 }
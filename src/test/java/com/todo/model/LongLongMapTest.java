@@ -0,0 +1,46 @@
+package com.todo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongMapTest {
+
+    @Test
+    void putGetRemove_basic() {
+        LongLongMap map = new LongLongMap(0);
+        map.put(7, 1);
+        map.put(7, 2);
+        assertEquals(2, map.get(7));
+        assertEquals(LongLongMap.MISSING, map.get(8));
+
+        map.remove(7);
+        assertEquals(LongLongMap.MISSING, map.get(7));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void randomOperations_matchHashMap() {
+        LongLongMap     map      = new LongLongMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random          random   = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongLongMap.MISSING), map.get(key));
+        }
+    }
+}
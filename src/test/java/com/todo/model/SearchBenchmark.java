@@ -0,0 +1,76 @@
+package com.todo.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one search keystroke against list size, for the word index behind {@code /} and the
+ * trigram index behind Ctrl+P. Texts are four words drawn from a vocabulary of words made up of
+ * twelve syllables, so trigrams are far more common than in real text and the trigram figures are
+ * pessimistic. The word is searched as a prefix and whole, and with two letters swapped. Indexes
+ * are built in setup, so only the query is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ren", "sto", "tu", "ber", "ga", "nil", "ös", "pa", "vik"};
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private TaskList list;
+    private String   word;
+    private String   typo;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom random     = new SplittableRandom(1);
+        final List<String>     vocabulary = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            final StringBuilder w = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) w.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            vocabulary.add(w.toString());
+        }
+        final TaskList.Builder builder = TaskList.builder();
+        final LocalDateTime    start   = LocalDateTime.of(2024, 1, 1, 8, 0);
+        for (int i = 1; i <= size; i++) {
+            final StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 4; w++) text.append(w > 0 ? " " : "").append(vocabulary.get(random.nextInt(vocabulary.size())));
+            builder.add(new Task(i, text.toString(), i % 3 == 0, start.plusMinutes(i)));
+        }
+        list = builder.build();
+        word = vocabulary.get(42);
+        typo = word.substring(0, 2) + word.charAt(3) + word.charAt(2) + word.substring(4);
+        list.search(word, 1, true);
+        list.fuzzySearch(word, 1, true);
+    }
+
+    @Benchmark
+    public List<Task> wordsPrefix() {
+        return list.search(word.substring(0, 3), 17, false);
+    }
+
+    @Benchmark
+    public List<Task> wordsWhole() {
+        return list.search(word + " ", 17, false);
+    }
+
+    @Benchmark
+    public List<Task> trigramsWhole() {
+        return list.fuzzySearch(word, 17, false);
+    }
+
+    @Benchmark
+    public List<Task> trigramsTypo() {
+        return list.fuzzySearch(typo, 17, false);
+    }
+}
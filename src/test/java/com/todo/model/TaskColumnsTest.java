@@ -0,0 +1,56 @@
+package com.todo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskColumnsTest {
+
+    private final List<Task> tasks = List.of(
+            new Task(3, "köp mjölk 🥛", true, LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_789)),
+            new Task(1, "", false, LocalDateTime.of(1999, 12, 31, 23, 59)),
+            new Task(7, "ring kalle", false, LocalDateTime.of(2025, 1, 5, 18, 0)));
+
+    @Test
+    void add_thenRead_roundtripsEveryField() {
+        TaskColumns columns = new TaskColumns(0);
+        tasks.forEach(columns::add);
+
+        assertEquals(3, columns.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i), columns.get(i));
+            assertEquals(tasks.get(i).id(), columns.id(i));
+            assertEquals(tasks.get(i).done(), columns.done(i));
+        }
+        assertEquals(tasks, List.of(columns.trim().get(0), columns.get(1), columns.get(2)));
+    }
+
+    @Test
+    void add_growsPastInitialCapacity() {
+        TaskColumns columns = new TaskColumns(1);
+        for (int i = 0; i < 1_000; i++) {
+            columns.add(new Task(i, "task " + "x".repeat(i % 50), i % 2 == 0, LocalDateTime.of(2024, 1, 1, 0, 0)));
+        }
+
+        assertEquals(1_000, columns.size());
+        assertEquals("task " + "x".repeat(999 % 50), columns.get(999).text());
+        assertTrue(columns.done(998));
+    }
+
+    @Test
+    void listBackedByColumns_doesNotKeepDecodedTasks() {
+        TaskColumns columns = new TaskColumns(tasks.size());
+        tasks.forEach(columns::add);
+        TaskList list = new TaskList(columns);
+
+        Task first = list.getAll().get(0);
+        assertEquals(first, list.getAll().get(0));
+        assertNotSame(first, list.getAll().get(0));
+        assertTrue(list.toggleDone(2));
+        assertEquals(List.of(tasks.get(1)), list.getOpen());
+        assertEquals(8, list.add("ny").id());
+    }
+}
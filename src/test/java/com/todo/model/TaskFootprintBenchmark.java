@@ -0,0 +1,76 @@
+package com.todo.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by a {@link TaskList} of {@code size} tasks, backed by {@link Task} objects or by
+ * {@link TaskColumns}. The figure to read is the {@code bytesPerTask} secondary result, measured
+ * as used heap after a full collection, with and without the list. JMH sums such counters over
+ * iterations, hence a single measured one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskFootprintBenchmark {
+
+    public enum Backing { TASKS, COLUMNS }
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"TASKS", "COLUMNS"})
+    Backing backing;
+
+    private TaskList retained;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerTask;
+    }
+
+    @Setup(Level.Iteration)
+    public void release() {
+        retained = null;
+    }
+
+    @Benchmark
+    public TaskList load(final Footprint footprint) {
+        final long before = usedHeap();
+        retained = backing == Backing.TASKS ? fromTasks() : fromColumns();
+        retained.getAll().get(size / 2);
+        footprint.bytesPerTask = (usedHeap() - before) / size;
+        return retained;
+    }
+
+    private TaskList fromTasks() {
+        final List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) tasks.add(task(i));
+        return new TaskList(tasks);
+    }
+
+    private TaskList fromColumns() {
+        final TaskColumns columns = new TaskColumns(size);
+        for (int i = 0; i < size; i++) columns.add(task(i));
+        return new TaskList(columns.trim());
+    }
+
+    private static Task task(final int i) {
+        return new Task(i + 1, "task number " + i + " with some typical length text", i % 3 == 0,
+                LocalDateTime.of(2024, 1, 1, 8, 0).plusSeconds(i));
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+package com.todo.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame-sized reads (the visible rows plus the header counts) from several threads while one
+ * thread keeps changing the list. {@code snapshot} readers take a published {@link TaskSnapshot}
+ * without locking; {@code locked} readers hold the list's monitor the way the TUI used to. Run
+ * once per reader count ({@code -tg 1,1}, {@code -tg 1,2}, ... {@code -tg 1,8}) to see how read
+ * throughput scales with cores.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TaskListConcurrencyBenchmark {
+    private static final int ROWS = 20;
+
+    @Param({"10000", "100000"})
+    int size;
+
+    private TaskList list;
+
+    @Setup
+    public void setUp() {
+        list = new TaskList(List.of());
+        for (int i = 0; i < size; i++) list.add("task number " + i + " with some typical length text");
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public void snapshotWriter() {
+        list.toggleDone(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(4)
+    public long snapshotReader() {
+        final TaskSnapshot snapshot = list.snapshot();
+        return frame(snapshot.openView(), snapshot.stats());
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWriter() {
+        list.toggleDone(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(4)
+    public long lockedReader() {
+        synchronized (list) {
+            return frame(list.openView(), new TaskStats(list.getAll().size(), list.doneCount()));
+        }
+    }
+
+    private static long frame(final List<Task> open, final TaskStats stats) {
+        final int from = open.isEmpty() ? 0 : ThreadLocalRandom.current().nextInt(open.size());
+        long sum = stats.done();
+        for (int i = from; i < Math.min(open.size(), from + ROWS); i++) sum += open.get(i).text().length();
+        return sum;
+    }
+}
@@ -3,7 +3,10 @@ package com.todo.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -136,4 +139,509 @@ class TaskListTest {
     void getOpen_emptyList_returnsEmpty() {
         assertTrue(list.getOpen().isEmpty());
     }
+
+    // --- drainChanges ---
+
+    @Test
+    void drainChanges_returnsChangesInOrder() {
+        Task t = list.add("a");
+        list.toggleDone(0);
+        List<TaskChange> changes = list.drainChanges();
+        assertEquals(2, changes.size());
+        assertEquals(TaskChange.Type.ADD, changes.get(0).type());
+        assertEquals(TaskChange.Type.TOGGLE, changes.get(1).type());
+        assertEquals(t.id(), changes.get(1).id());
+        assertTrue(changes.get(1).task().done());
+    }
+
+    @Test
+    void drainChanges_secondCall_returnsEmpty() {
+        list.add("a");
+        list.drainChanges();
+        assertTrue(list.drainChanges().isEmpty());
+    }
+
+    // --- apply ---
+
+    @Test
+    void apply_replayedChanges_reproduceList() {
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        list.moveUp(2);
+        list.delete(0);
+        list.updateText(1, "B");
+        List<TaskChange> changes = list.drainChanges();
+
+        TaskList replica = new TaskList(List.of());
+        changes.forEach(replica::apply);
+
+        assertEquals(list.getAll(), replica.getAll());
+        assertTrue(replica.drainChanges().isEmpty());
+    }
+
+    @Test
+    void apply_sameChangeTwice_isIdempotent() {
+        list.add("a");
+        list.toggleDone(0);
+        List<TaskChange> changes = list.drainChanges();
+
+        TaskList replica = new TaskList(List.of());
+        changes.forEach(replica::apply);
+        changes.forEach(replica::apply);
+
+        assertEquals(list.getAll(), replica.getAll());
+    }
+
+    @Test
+    void apply_add_advancesNextId() {
+        Task t = list.add("a");
+        TaskList replica = new TaskList(List.of());
+        replica.apply(list.drainChanges().get(0));
+        assertTrue(replica.add("b").id() > t.id());
+    }
+
+    // --- open view ---
+
+    @Test
+    void openView_followsRandomMutations() {
+        Random random = new Random(7);
+        List<Task> view = list.openView();
+        for (int i = 0; i < 2_000; i++) {
+            int size = list.getAll().size();
+            int at   = size == 0 ? 0 : random.nextInt(size);
+            switch (size < 5 ? 0 : random.nextInt(6)) {
+                case 0 -> list.add("t" + i);
+                case 1 -> list.toggleDone(at);
+                case 2 -> list.delete(at);
+                case 3 -> list.moveUp(at);
+                case 4 -> list.moveDown(at);
+                default -> list.apply(new TaskChange(TaskChange.Type.MOVE, list.getAll().get(at), random.nextInt(size)));
+            }
+            if (i % 50 == 0) {
+                assertEquals(list.getAll().stream().filter(t -> !t.done()).toList(), view);
+                assertEquals(list.getAll().size() - view.size(), list.doneCount());
+            }
+        }
+    }
+
+    @Test
+    void openIndexOf_givesRankAmongOpenTasks() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        Task c = list.add("c");
+        list.toggleDone(0);
+
+        assertEquals(-1, list.openIndexOf(a.id()));
+        assertEquals(0, list.openIndexOf(b.id()));
+        assertEquals(1, list.openIndexOf(c.id()));
+        assertEquals(c, list.openView().get(1));
+    }
+
+    @Test
+    void stats_trackAddToggleDeleteAndRebase() {
+        Task a = list.add("a");
+        list.add("b");
+        list.toggleDone(0);
+        assertEquals(new TaskStats(2, 1), list.stats());
+        assertEquals(1, list.stats().open());
+
+        list.deleteById(a.id());
+        assertEquals(new TaskStats(1, 0), list.stats());
+
+        list.drainChanges();
+        LocalDateTime now = LocalDateTime.now();
+        list.rebase(List.of(new Task(9, "x", true, now), new Task(10, "y", true, now)), List.of());
+        assertEquals(2, list.stats().done());
+        assertEquals(0, list.stats().open());
+    }
+
+    // --- id-based mutations ---
+
+    @Test
+    void byId_mutationsFindTaskWherever_itMoved() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        Task c = list.add("c");
+
+        assertTrue(list.moveUpById(c.id()));
+        assertTrue(list.toggleDoneById(a.id()));
+        assertEquals(b, list.deleteById(b.id()));
+        assertTrue(list.updateTextById(c.id(), "C"));
+
+        assertEquals(List.of("a", "C"), list.getAll().stream().map(Task::text).toList());
+        assertTrue(list.getAll().get(0).done());
+        assertEquals(1, list.indexOfId(c.id()));
+        assertEquals(-1, list.indexOfId(b.id()));
+    }
+
+    @Test
+    void findById_returnsTheTaskWhereverItMoved() {
+        Task a = list.add("a");
+        list.add("b");
+        list.moveById(a.id(), 1);
+
+        assertEquals(a, list.findById(a.id()));
+        assertNull(list.findById(99));
+    }
+
+    @Test
+    void byId_unknownId_changesNothing() {
+        list.add("a");
+        list.drainChanges();
+
+        assertNull(list.deleteById(99));
+        assertFalse(list.toggleDoneById(99));
+        assertFalse(list.moveDownById(99));
+        assertTrue(list.drainChanges().isEmpty());
+    }
+
+    @Test
+    void indexOfId_staysCorrectThroughMixedMutations() {
+        for (int i = 0; i < 50; i++) list.add("t" + i);
+        list.indexOfId(1);
+        list.delete(10);
+        list.moveDown(0);
+        list.moveUp(30);
+        list.apply(new TaskChange(TaskChange.Type.ADD, Task.create(500, "ny"), 5));
+        list.apply(new TaskChange(TaskChange.Type.MOVE, list.getAll().get(40), 2));
+
+        for (int i = 0; i < list.getAll().size(); i++) {
+            assertEquals(i, list.indexOfId(list.getAll().get(i).id()));
+        }
+    }
+
+    @Test
+    void indexOfId_staysCorrectWhenInsertionsKeepHittingTheSameGap() {
+        for (int i = 0; i < 100; i++) list.add("t" + i);
+        list.indexOfId(1);
+        for (int i = 0; i < 300; i++) {
+            list.move(list.getAll().size() - 1, 50);
+            list.apply(new TaskChange(TaskChange.Type.ADD, Task.create(1_000 + i, "ny" + i), 0));
+        }
+
+        for (int i = 0; i < list.getAll().size(); i++) {
+            assertEquals(i, list.indexOfId(list.getAll().get(i).id()));
+        }
+    }
+
+    // --- move to position ---
+
+    @Test
+    void move_toTopAndBottom_recordsOneChange() {
+        Task a = list.add("a");
+        list.add("b");
+        Task c = list.add("c");
+        list.drainChanges();
+
+        assertTrue(list.moveById(c.id(), 0));
+        assertTrue(list.moveById(a.id(), Integer.MAX_VALUE));
+        assertFalse(list.moveById(a.id(), 2));
+
+        assertEquals(List.of("c", "b", "a"), list.getAll().stream().map(Task::text).toList());
+        List<TaskChange> changes = list.drainChanges();
+        assertEquals(2, changes.size());
+        assertEquals(new TaskChange(TaskChange.Type.MOVE, c, 0), changes.get(0));
+        assertEquals(2, changes.get(1).position());
+    }
+
+    // --- batch ---
+
+    @Test
+    void batch_publishesOnceAndDrainsChangesTogether() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        list.add("c");
+        list.drainChanges();
+        TaskSnapshot before = list.snapshot();
+
+        list.batch(l -> {
+            assertTrue(l.setDoneById(a.id(), true));
+            assertFalse(l.setDoneById(a.id(), true));
+            l.deleteById(b.id());
+            assertSame(before, l.snapshot());
+        });
+
+        assertEquals(List.of("a", "c"), list.snapshot().stream().map(Task::text).toList());
+        assertEquals(new TaskStats(2, 1), list.stats());
+        assertEquals(2, list.drainChanges().size());
+    }
+
+    @Test
+    void batch_whenOperationThrows_appliesNothing() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        list.drainChanges();
+
+        assertThrows(IllegalStateException.class, () -> list.batch(l -> {
+            l.toggleDoneById(a.id());
+            l.deleteById(b.id());
+            l.add("c");
+            l.moveById(a.id(), 1);
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(List.of(a, b), list.snapshot());
+        assertTrue(list.drainChanges().isEmpty());
+        assertTrue(list.undo());
+        assertEquals(List.of(a), list.getAll());
+    }
+
+    @Test
+    void rebase_ownTaskAlreadyOnDisk_keepsItsId() {
+        Task mine = list.add("min");
+        List<TaskChange> pending = list.drainChanges();
+
+        List<TaskChange> saved = list.rebase(List.of(mine), pending);
+
+        assertEquals(List.of(mine), list.getAll());
+        assertEquals(mine.id(), saved.get(0).id());
+    }
+
+    @Test
+    void requeue_putsChangesBackInFrontOfNewerOnes() {
+        list.add("a");
+        List<TaskChange> drained = list.drainChanges();
+        list.add("b");
+
+        list.requeue(drained);
+
+        assertEquals(List.of("a", "b"), list.drainChanges().stream().map(c -> c.task().text()).toList());
+    }
+
+    // --- undo / redo ---
+
+    @Test
+    void undo_revertsEachKindOfChangeAndRedoRepeatsIt() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        list.toggleDoneById(a.id());
+        list.updateTextById(b.id(), "b2");
+        list.moveById(b.id(), 0);
+        list.deleteById(a.id());
+        List<Task> after = List.copyOf(list.getAll());
+
+        for (int i = 0; i < 6; i++) assertTrue(list.undo());
+        assertFalse(list.undo());
+        assertTrue(list.getAll().isEmpty());
+
+        for (int i = 0; i < 6; i++) assertTrue(list.redo());
+        assertFalse(list.redo());
+        assertEquals(after, list.getAll());
+    }
+
+    @Test
+    void undo_batchIsOneStepAndNewActionDropsRedo() {
+        Task a = list.add("a");
+        Task b = list.add("b");
+        list.batch(l -> {
+            l.deleteById(a.id());
+            l.toggleDoneById(b.id());
+        });
+
+        assertTrue(list.undo());
+        assertEquals(List.of(a, b), list.getAll());
+
+        list.add("c");
+        assertFalse(list.redo());
+    }
+
+    @Test
+    void undo_recordsRevertingChangesForSaving() {
+        Task a = list.add("a");
+        list.drainChanges();
+        list.updateTextById(a.id(), "b");
+        list.drainChanges();
+
+        list.undo();
+
+        TaskList replica = new TaskList(List.of(new Task(a.id(), "b", false, a.createdAt())));
+        list.drainChanges().forEach(replica::apply);
+        assertEquals(list.getAll(), replica.getAll());
+    }
+
+    @Test
+    void undo_keepsOnlyTheNewestSteps() {
+        for (int i = 0; i < History.DEFAULT_DEPTH + 10; i++) list.add("t" + i);
+
+        int undone = 0;
+        while (list.undo()) undone++;
+
+        assertEquals(History.DEFAULT_DEPTH, undone);
+        assertEquals(10, list.getAll().size());
+    }
+
+    @Test
+    void undo_afterRenumberingMerge_followsTheNewId() {
+        TaskList other = new TaskList(List.of());
+        other.add("theirs");
+        Task mine = list.add("mine");
+
+        list.merge(other.drainChanges(), list.drainChanges());
+        long renumbered = list.getAll().stream().filter(t -> t.text().equals("mine")).findFirst().orElseThrow().id();
+        assertNotEquals(mine.id(), renumbered);
+
+        assertTrue(list.undo());
+        assertEquals(List.of("theirs"), list.getAll().stream().map(Task::text).toList());
+    }
+
+    // --- search ---
+
+    @Test
+    void search_followsAddUpdateDeleteAndRebase() {
+        Task milk  = list.add("köp mjölk");
+        Task bread = list.add("köp bröd");
+        assertEquals(List.of(bread, milk), list.search("köp", 10, true));
+
+        list.updateTextById(milk.id(), "ring mamma");
+        list.deleteById(bread.id());
+        assertTrue(list.search("köp", 10, true).isEmpty());
+        assertEquals(List.of(milk.id()), list.search("mam", 10, true).stream().map(Task::id).toList());
+
+        list.rebase(List.of(new Task(9, "köp ost", false, LocalDateTime.now())), List.of());
+        assertEquals(List.of(9L), list.search("köp", 10, true).stream().map(Task::id).toList());
+    }
+
+    @Test
+    void search_withoutDone_skipsDoneTasks() {
+        Task a = list.add("städa");
+        list.add("städa garaget");
+        list.toggleDoneById(a.id());
+
+        assertEquals(List.of("städa garaget"), list.search("städa", 10, false).stream().map(Task::text).toList());
+    }
+
+    @Test
+    void fuzzySearch_followsUpdatesAndSkipsDoneTasks() {
+        Task a = list.add("köp julklappar");
+        Task b = list.add("boka tandläkare");
+        assertEquals(b, list.fuzzySearch("tandlakare", 10, true).getFirst());
+
+        list.updateTextById(a.id(), "boka tandläkartid");
+        list.toggleDoneById(b.id());
+
+        assertEquals(List.of("boka tandläkartid"), list.fuzzySearch("tandläkar", 10, false).stream().map(Task::text).toList());
+        assertTrue(list.fuzzySearch("julklapp", 10, true).isEmpty());
+    }
+
+    @Test
+    void tree_matchesArrayListThroughRandomMutations() {
+        Random random = new Random(13);
+        List<Task> model = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            int size = model.size();
+            int at   = size == 0 ? 0 : random.nextInt(size);
+            switch (size < 10 ? 0 : random.nextInt(5)) {
+                case 0 -> model.add(list.add("t" + i));
+                case 1 -> assertEquals(model.remove(at), list.delete(at));
+                case 2 -> {
+                    list.toggleDone(at);
+                    model.set(at, list.getAll().get(at));
+                }
+                default -> {
+                    int to = random.nextInt(size);
+                    list.move(at, to);
+                    model.add(to, model.remove(at));
+                }
+            }
+            if (i % 250 == 0) {
+                assertEquals(model, list.getAll());
+                assertEquals(model.stream().filter(t -> !t.done()).toList(), list.openView());
+                Task probe = model.get(random.nextInt(model.size()));
+                assertEquals(model.indexOf(probe), list.indexOfId(probe.id()));
+            }
+        }
+    }
+
+    // --- merge / rebase ---
+
+    @Test
+    void merge_foreignAddWithSameId_renumbersLocalTask() {
+        TaskList other = new TaskList(List.of());
+        Task theirs = other.add("deras");
+        Task ours   = list.add("vår");
+        assertEquals(theirs.id(), ours.id());
+
+        List<TaskChange> pending = list.merge(other.drainChanges(), list.drainChanges());
+
+        // Both were added at position 0; ours is replayed last, as it will be from the journal.
+        assertEquals(List.of("vår", "deras"), list.getAll().stream().map(Task::text).toList());
+        assertNotEquals(list.getAll().get(0).id(), list.getAll().get(1).id());
+        assertEquals(list.getAll().get(0).id(), pending.get(0).id());
+        assertTrue(list.add("nästa").id() > pending.get(0).id());
+    }
+
+    @Test
+    void merge_localChangesApplyAfterForeignOnes() {
+        Task shared = list.add("delad");
+        list.drainChanges();
+        TaskList other = new TaskList(List.of(shared));
+        other.updateText(0, "deras text");
+        list.updateText(0, "vår text");
+        list.toggleDone(0);
+        List<TaskChange> drained = list.drainChanges();
+        list.add("ej sparad");
+
+        list.merge(other.drainChanges(), drained);
+
+        assertEquals("vår text", list.getAll().get(0).text());
+        assertTrue(list.getAll().get(0).done());
+        assertEquals(2, list.getAll().size());
+        assertEquals(1, list.drainChanges().size());
+    }
+
+    @Test
+    void rebase_replacesContentsAndKeepsLocalChanges() {
+        Task kept = list.add("kvar");
+        list.drainChanges();
+        list.toggleDone(0);
+        List<TaskChange> pending = list.drainChanges();
+        Task theirs = new Task(2, "deras", false, kept.createdAt());
+
+        list.rebase(List.of(kept, theirs), pending);
+
+        assertEquals(List.of(new Task(kept.id(), "kvar", true, kept.createdAt()), theirs), list.getAll());
+        assertEquals(3, list.add("ny").id());
+    }
+
+    // --- TaskSource backing ---
+
+    @Test
+    void sourceBacked_onlyMaterializesTasksThatAreRead() {
+        CountingSource source = new CountingSource(1000);
+        TaskList lazy = new TaskList(source);
+
+        lazy.getAll().get(500);
+        lazy.toggleDone(lazy.getAll().indexOf(lazy.getAll().get(10)));
+        lazy.doneCount();
+
+        assertEquals(2, source.materialized);
+        assertEquals(1001, lazy.add("ny").id());
+    }
+
+    @Test
+    void sourceBacked_mutationsShiftUnreadSlots() {
+        TaskList lazy = new TaskList(new CountingSource(3));
+        lazy.delete(0);
+        lazy.moveDown(0);
+        assertEquals(List.of(3L, 2L), lazy.getAll().stream().map(Task::id).toList());
+    }
+
+    private static class CountingSource implements TaskSource {
+        private final int size;
+        private int materialized;
+
+        CountingSource(int size) {
+            this.size = size;
+        }
+
+        public int size()                { return size; }
+        public long id(int index)        { return index + 1; }
+        public boolean done(int index)   { return index % 2 == 0; }
+
+        public Task get(int index) {
+            materialized++;
+            return new Task(id(index), "task " + index, done(index), java.time.LocalDateTime.now());
+        }
+    }
 }
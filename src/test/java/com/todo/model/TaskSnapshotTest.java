@@ -0,0 +1,131 @@
+package com.todo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSnapshotTest {
+
+    @Test
+    void snapshot_isUnaffectedByLaterChanges() {
+        TaskList list = new TaskList(List.of());
+        list.add("a");
+        list.add("b");
+        TaskSnapshot before = list.snapshot();
+
+        list.toggleDone(0);
+        list.move(1, 0);
+        list.add("c");
+        list.delete(2);
+
+        assertEquals(List.of("a", "b"), before.stream().map(Task::text).toList());
+        assertFalse(before.get(0).done());
+        assertEquals(2, before.openCount());
+        assertEquals(List.of("b", "a"), list.snapshot().stream().map(Task::text).toList());
+        assertEquals(List.of("b"), list.snapshot().openView().stream().map(Task::text).toList());
+    }
+
+    @Test
+    void getAll_cannotBeModified() {
+        TaskList list = new TaskList(List.of());
+        list.add("a");
+        assertThrows(UnsupportedOperationException.class, () -> list.getAll().add(Task.create(9, "x")));
+        assertThrows(UnsupportedOperationException.class, () -> list.getAll().remove(0));
+    }
+
+    @Test
+    void snapshots_matchCopiesTakenAtTheSameTime() {
+        TaskList           list   = new TaskList(List.of());
+        Random             random = new Random(3);
+        List<TaskSnapshot> taken  = new ArrayList<>();
+        List<List<Task>>   copies = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int size = list.getAll().size();
+            int at   = size == 0 ? 0 : random.nextInt(size);
+            switch (size < 10 ? 0 : random.nextInt(4)) {
+                case 0 -> list.add("t" + i);
+                case 1 -> list.delete(at);
+                case 2 -> list.toggleDone(at);
+                default -> list.move(at, random.nextInt(size));
+            }
+            if (i % 100 == 0) {
+                taken.add(list.snapshot());
+                copies.add(List.copyOf(list.getAll()));
+            }
+        }
+        for (int i = 0; i < taken.size(); i++) {
+            assertEquals(copies.get(i), taken.get(i));
+            assertEquals(copies.get(i).stream().filter(t -> !t.done()).toList(), taken.get(i).openView());
+        }
+    }
+
+    @Test
+    void subList_matchesTheTasksAtThosePositions() {
+        TaskList list   = new TaskList(List.of());
+        Random   random = new Random(7);
+        for (int i = 0; i < 500; i++) list.add("t" + i);
+        for (int i = 0; i < 500; i += 1 + random.nextInt(3)) list.toggleDone(i);
+        TaskSnapshot snapshot = list.snapshot();
+        List<Task>   all      = List.copyOf(snapshot);
+        List<Task>   open     = all.stream().filter(t -> !t.done()).toList();
+
+        for (int round = 0; round < 200; round++) {
+            int from = random.nextInt(all.size() + 1);
+            int to   = from + random.nextInt(all.size() - from + 1);
+            assertEquals(all.subList(from, to), snapshot.subList(from, to));
+            from = random.nextInt(open.size() + 1);
+            to   = from + random.nextInt(open.size() - from + 1);
+            assertEquals(open.subList(from, to), snapshot.openView().subList(from, to));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.openView().subList(0, open.size() + 1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.subList(0, 1).clear());
+    }
+
+    @Test
+    void readers_seeConsistentStateWhileAWriterRuns() throws Exception {
+        TaskList list = new TaskList(List.of());
+        for (int i = 0; i < 1_000; i++) list.add("t" + i);
+        AtomicBoolean   stop    = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                results.add(readers.submit(() -> {
+                    int checked = 0;
+                    do {
+                        TaskSnapshot snapshot = list.snapshot();
+                        int open = 0;
+                        for (Task t : snapshot) if (!t.done()) open++;
+                        // Every task has a unique id, and each snapshot must agree with its own counts.
+                        assertEquals(snapshot.openCount(), open);
+                        assertEquals(snapshot.size(), snapshot.stream().map(Task::id).distinct().count());
+                        checked++;
+                    } while (!stop.get());
+                    return checked;
+                }));
+            }
+            Random random = new Random(5);
+            for (int i = 0; i < 20_000; i++) {
+                int at = random.nextInt(list.getAll().size());
+                switch (random.nextInt(4)) {
+                    case 0 -> list.toggleDone(at);
+                    case 1 -> list.move(at, random.nextInt(list.getAll().size()));
+                    case 2 -> list.add("n" + i);
+                    default -> list.delete(at);
+                }
+            }
+            stop.set(true);
+            for (Future<Integer> result : results) assertTrue(result.get() > 0);
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.todo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+    private final Map<Long, Task> tasks = new HashMap<>();
+    private final TrigramIndex    index = new TrigramIndex();
+
+    @Test
+    void trigrams_padWordsAndDropDuplicates() {
+        assertEquals(5, TrigramIndex.trigrams("Mjölk").length);
+        assertArrayEquals(TrigramIndex.trigrams("mjölk"), TrigramIndex.trigrams("MJÖLK mjölk"));
+        assertEquals(0, TrigramIndex.trigrams(" ,. ").length);
+    }
+
+    @Test
+    void search_findsPartialWordsAndTypos() {
+        add(1, "buy groceries");
+        add(2, "call the dentist");
+        add(3, "water the plants");
+
+        assertEquals(1L, index.search("grocer", 10, tasks::get).getFirst().id());
+        assertEquals(2L, index.search("dentsit", 10, tasks::get).getFirst().id());
+        assertTrue(index.search("xyz", 10, tasks::get).isEmpty());
+    }
+
+    @Test
+    void search_ranksByOverlapThenNewest() {
+        add(1, "tandläkare");
+        add(2, "tandläkartid");
+        add(3, "tandläkare imorgon");
+
+        assertEquals(List.of(3L, 1L, 2L), ids(index.search("tandläkare", 10, tasks::get)));
+        assertEquals(List.of(3L), ids(index.search("tandläkare", 1, tasks::get)));
+        assertEquals(List.of(1L, 2L), ids(index.search("tandläkare", 10, id -> id == 3 ? null : tasks.get(id))));
+    }
+
+    @Test
+    void randomChanges_acrossBlockSplits_matchLinearScan() {
+        String[] vocabulary = {"köp", "köpa", "mjölk", "möte", "mötet", "ring", "ringa", "tandläkare"};
+        Random   random     = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(2_000);
+            Task old = tasks.remove(id);
+            if (old != null) index.remove(old);
+            if (random.nextInt(4) > 0) {
+                add(id, vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]);
+            }
+        }
+        for (String query : List.of("köp", "möt", "rnga", "tandlakare mjölk")) {
+            assertEquals(scan(query), ids(index.search(query, Integer.MAX_VALUE, tasks::get)), query);
+        }
+    }
+
+    @Test
+    void remove_lastTaskOfTrigram_freesItsSlotForReuse() {
+        add(1, "mjölk");
+        int slots = index.slotCount();
+
+        index.remove(tasks.remove(1L));
+        assertEquals(0, index.trigramCount());
+
+        add(2, "bröd");
+        assertEquals(4, index.trigramCount());
+        assertEquals(slots, index.slotCount());
+        assertTrue(index.search("mjölk", 10, tasks::get).isEmpty());
+        assertEquals(List.of(2L), ids(index.search("bröd", 10, tasks::get)));
+    }
+
+    private void add(final long id, final String text) {
+        Task task = new Task(id, text, false, LocalDateTime.now());
+        tasks.put(id, task);
+        index.add(task);
+    }
+
+    /** The expected result, found by comparing trigrams with every task. */
+    private List<Long> scan(final String query) {
+        long[]     grams = TrigramIndex.trigrams(query);
+        int        least = Math.max(1, (grams.length + 2) / 3);
+        List<long[]> scored = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            long[] own   = TrigramIndex.trigrams(task.text());
+            long   score = Arrays.stream(grams).filter(g -> Arrays.binarySearch(own, g) >= 0).count();
+            if (score >= least) scored.add(new long[] {score, task.id()});
+        }
+        scored.sort(Comparator.<long[]>comparingLong(s -> s[0]).thenComparingLong(s -> s[1]).reversed());
+        return scored.stream().map(s -> s[1]).toList();
+    }
+
+    private static List<Long> ids(final List<Task> tasks) {
+        return tasks.stream().map(Task::id).toList();
+    }
+}
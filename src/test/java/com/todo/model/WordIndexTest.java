@@ -0,0 +1,102 @@
+package com.todo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordIndexTest {
+    private final Map<Long, Task> tasks = new HashMap<>();
+    private final WordIndex       index = new WordIndex();
+
+    @Test
+    void words_splitOnNonLettersAndIgnoreCase() {
+        assertEquals(List.of("köp", "mjölk", "2", "liter"), List.copyOf(WordIndex.words("Köp MJÖLK, 2 liter! köp")));
+    }
+
+    @Test
+    void search_requiresEveryWord() {
+        add(1, "köp mjölk");
+        add(2, "köp bröd");
+        add(3, "ring mamma");
+
+        assertEquals(List.of(2L), ids(index.search("bröd köp ", 10, tasks::get)));
+        assertEquals(List.of(), ids(index.search("ring köp ", 10, tasks::get)));
+    }
+
+    @Test
+    void search_lastWordAsPrefix_wholeWordsFirstThenNewest() {
+        add(1, "mat");
+        add(2, "matte läxa");
+        add(3, "matlåda");
+        add(4, "mat till fest");
+
+        assertEquals(List.of(4L, 1L, 3L, 2L), ids(index.search("mat", 10, tasks::get)));
+        assertEquals(List.of(4L, 1L), ids(index.search("mat ", 10, tasks::get)));
+        assertEquals(List.of(2L), ids(index.search("läxa mat", 10, tasks::get)));
+    }
+
+    @Test
+    void search_stopsAtLimitAndSkipsFilteredTasks() {
+        for (long id = 1; id <= 100; id++) add(id, "uppgift " + id);
+
+        assertEquals(List.of(100L, 99L, 98L), ids(index.search("upp", 3, tasks::get)));
+        assertEquals(List.of(99L, 97L), ids(index.search("uppgift", 2, id -> id % 2 == 0 ? null : tasks.get(id))));
+    }
+
+    @Test
+    void randomChanges_matchLinearScan() {
+        String[] vocabulary = {"köp", "köpa", "mjölk", "möte", "mötet", "ring", "ringa", "tandläkare"};
+        Random   random     = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long id = random.nextInt(300);
+            Task old = tasks.remove(id);
+            if (old != null) index.remove(old);
+            if (random.nextInt(4) > 0) {
+                add(id, vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]);
+            }
+        }
+        for (String query : List.of("k", "köp", "köp ", "ring m", "mötet ", "t")) {
+            assertEquals(scan(query), ids(index.search(query, Integer.MAX_VALUE, tasks::get)), query);
+        }
+    }
+
+    private void add(final long id, final String text) {
+        Task task = new Task(id, text, false, LocalDateTime.now());
+        tasks.put(id, task);
+        index.add(task);
+    }
+
+    /** The expected result, found the slow way. */
+    private List<Long> scan(final String query) {
+        List<String> terms  = new ArrayList<>(WordIndex.words(query));
+        boolean      typing = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        String       last   = terms.getLast();
+        List<Task>   whole  = new ArrayList<>();
+        List<Task>   begun  = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            List<String> words = List.copyOf(WordIndex.words(task.text()));
+            if (!words.containsAll(typing ? terms.subList(0, terms.size() - 1) : terms)) continue;
+            if (!typing || words.contains(last)) {
+                whole.add(task);
+            } else if (words.stream().anyMatch(w -> w.startsWith(last))) {
+                begun.add(task);
+            }
+        }
+        whole.sort(Comparator.comparingLong(Task::id).reversed());
+        begun.sort(Comparator.comparingLong(Task::id).reversed());
+        whole.addAll(begun);
+        return ids(whole);
+    }
+
+    private static List<Long> ids(final List<Task> tasks) {
+        return tasks.stream().map(Task::id).toList();
+    }
+}
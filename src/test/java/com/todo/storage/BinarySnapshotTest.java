@@ -0,0 +1,100 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Task> tasks = List.of(
+            new Task(1, "köp mjölk", false, LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_000)),
+            new Task(7, "ring kalle 📞", true, LocalDateTime.of(2025, 12, 31, 23, 59)),
+            new Task(9, "", false, LocalDateTime.of(1999, 1, 1, 0, 0)));
+
+    @Test
+    void writeAndMap_roundtrip_preservesAllFields() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        BinarySnapshot.write(file, tasks, Durability.FLUSH);
+
+        BinarySnapshot snapshot = BinarySnapshot.read(file);
+        assertEquals(3, snapshot.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i), snapshot.get(i));
+        }
+    }
+
+    @Test
+    void idAndDone_readHeaderTableOnly() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        BinarySnapshot.write(file, tasks, Durability.FLUSH);
+
+        BinarySnapshot snapshot = BinarySnapshot.read(file);
+        assertEquals(7, snapshot.id(1));
+        assertTrue(snapshot.done(1));
+        assertFalse(snapshot.done(2));
+    }
+
+    @Test
+    void map_whenNotASnapshot_throws() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        Files.writeString(file, "not a snapshot at all");
+        assertThrows(java.io.IOException.class, () -> BinarySnapshot.read(file));
+    }
+
+    @Test
+    void read_whenTextRunsPastTheEnd_throws() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        BinarySnapshot.write(file, tasks, Durability.FLUSH);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(16 + 2 * 32 + 24, 1_000);
+        Files.write(file, bytes);
+
+        assertThrows(java.io.IOException.class, () -> BinarySnapshot.read(file));
+    }
+
+    @Test
+    void write_overOpenSnapshot_keepsOldSnapshotReadable() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        BinarySnapshot.write(file, tasks, Durability.FLUSH);
+        BinarySnapshot old = BinarySnapshot.read(file);
+
+        BinarySnapshot.write(file, List.of(), Durability.NONE);
+
+        assertEquals(tasks.get(1), old.get(1));
+        assertEquals(0, BinarySnapshot.read(file).size());
+    }
+
+    @Test
+    void read_leavesFileFreeToDelete() throws Exception {
+        Path file = tempDir.resolve("tasks.bin");
+        BinarySnapshot.write(file, tasks, Durability.FLUSH);
+        BinarySnapshot snapshot = BinarySnapshot.read(file);
+
+        Files.delete(file);
+
+        assertEquals(tasks.get(0), snapshot.get(0));
+    }
+
+    @Test
+    void converter_jsonToBinaryAndBack_preservesTasks() throws Exception {
+        Path json = tempDir.resolve("tasks.json");
+        TaskRepository.createMapper().writeValue(json.toFile(), tasks);
+
+        SnapshotConverter.toBinary(json, tempDir.resolve("tasks.bin"));
+        Files.delete(json);
+        SnapshotConverter.toJson(tempDir.resolve("tasks.bin"), json);
+
+        assertEquals(tasks, new TaskRepository(json, StorageOptions.DEFAULT.withJournal(false)).load().getAll());
+    }
+}
@@ -0,0 +1,125 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeletedArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Task task(long id) {
+        return new Task(id, "task " + id, false, LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    private List<Task> readAll(DeletedArchive archive) throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        archive.forEach(tasks::add);
+        return tasks;
+    }
+
+    @Test
+    void append_writesOneLinePerTask() throws Exception {
+        DeletedArchive archive = new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH);
+        archive.append(task(1));
+        archive.append(task(2));
+
+        assertEquals(2, Files.readAllLines(tempDir.resolve("deleted.ndjson")).size());
+        assertEquals(List.of(task(1), task(2)), readAll(archive));
+    }
+
+    @Test
+    void append_pastSegmentSize_compressesSegmentAndKeepsOrder() throws Exception {
+        DeletedArchive archive = new DeletedArchive(tempDir, 200, Durability.FLUSH);
+        for (int i = 1; i <= 20; i++) archive.append(task(i));
+
+        assertTrue(Files.exists(tempDir.resolve("deleted-000001.ndjson.gz")));
+        assertTrue(Files.exists(tempDir.resolve("deleted-000002.ndjson.gz")));
+        assertEquals(20, readAll(archive).size());
+        assertEquals(task(1), readAll(archive).get(0));
+        assertEquals(task(20), readAll(new DeletedArchive(tempDir, 200, Durability.FLUSH)).get(19));
+    }
+
+    @Test
+    void append_fromTwoInstances_rollsOnTheirCombinedSize() throws Exception {
+        int            line  = TaskJsonCodec.encodeLine(task(1)).length;
+        DeletedArchive one   = new DeletedArchive(tempDir, 3L * line, Durability.FLUSH);
+        DeletedArchive other = new DeletedArchive(tempDir, 3L * line, Durability.FLUSH);
+        one.append(task(1));
+        other.append(task(2));
+        one.append(task(3));
+
+        assertTrue(Files.exists(tempDir.resolve("deleted-000001.ndjson.gz")));
+        assertFalse(Files.exists(tempDir.resolve("deleted.ndjson")));
+        assertEquals(List.of(task(1), task(2), task(3)), readAll(other));
+    }
+
+    @Test
+    void append_withLegacyArray_migratesItToFirstSegment() throws Exception {
+        TaskJsonCodec.write(tempDir.resolve("deleted.json"), List.of(task(1), task(2)), Durability.FLUSH);
+
+        DeletedArchive archive = new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH);
+        assertEquals(2, readAll(archive).size());
+
+        archive.append(task(3));
+
+        assertFalse(Files.exists(tempDir.resolve("deleted.json")));
+        assertTrue(Files.exists(tempDir.resolve("deleted-000000.ndjson.gz")));
+        assertEquals(List.of(task(1), task(2), task(3)), readAll(archive));
+    }
+
+    @Test
+    void legacyArray_leftBehindByInterruptedMigration_isReadOnce() throws Exception {
+        TaskJsonCodec.write(tempDir.resolve("deleted.json"), List.of(task(1), task(2)), Durability.FLUSH);
+        new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH).append(task(3));
+        TaskJsonCodec.write(tempDir.resolve("deleted.json"), List.of(task(1), task(2)), Durability.FLUSH);
+
+        DeletedArchive archive = new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH);
+        assertEquals(List.of(task(1), task(2), task(3)), readAll(archive));
+        archive.append(task(4));
+
+        assertFalse(Files.exists(tempDir.resolve("deleted.json")));
+        assertEquals(List.of(task(1), task(2), task(3), task(4)), readAll(archive));
+    }
+
+    @Test
+    void forEach_skipsRecordsWithOutOfRangeValues() throws Exception {
+        Files.writeString(tempDir.resolve("deleted.ndjson"),
+                "{\"id\":99999999999999999999,\"text\":\"a\",\"createdAt\":\"2024-01-01T12:00:00\"}\n"
+                + "{\"id\":2,\"text\":\"b\",\"createdAt\":[2024,13,1,0,0,0,0]}\n");
+
+        DeletedArchive archive = new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH);
+        archive.append(task(3));
+
+        List<Task> tasks = new ArrayList<>();
+        assertEquals(2, archive.forEach(tasks::add));
+        assertEquals(List.of(task(3)), tasks);
+    }
+
+    @Test
+    void forEach_skipsTornRecordAndFollowingAppendsStillRead() throws Exception {
+        Files.writeString(tempDir.resolve("deleted.ndjson"), "{\"id\":1,\"te", StandardOpenOption.CREATE);
+
+        DeletedArchive archive = new DeletedArchive(tempDir, 1 << 20, Durability.FLUSH);
+        archive.append(task(2));
+
+        List<Task> tasks = new ArrayList<>();
+        assertEquals(1, archive.forEach(tasks::add));
+        assertEquals(List.of(task(2)), tasks);
+    }
+
+    @Test
+    void forEach_whenEmpty_yieldsNothing() throws Exception {
+        assertTrue(readAll(new DeletedArchive(tempDir.resolve("missing"), 1 << 20, Durability.FLUSH)).isEmpty());
+    }
+}
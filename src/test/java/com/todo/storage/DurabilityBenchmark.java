@@ -0,0 +1,74 @@
+package com.todo.storage;
+
+import com.todo.model.TaskList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a save per {@link Durability} level: a journal append of one change, a full snapshot
+ * rewrite, and journal appends from several threads, where group commit shares one write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    @Param({"NONE", "FLUSH", "FSYNC"})
+    Durability durability;
+
+    private Path           dir;
+    private TaskRepository journal;
+    private TaskList       journalList;
+    private TaskRepository snapshot;
+    private TaskList       snapshotList;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("todo-bench");
+        final StorageOptions options = StorageOptions.DEFAULT.withDurability(durability);
+
+        journal     = new TaskRepository(Files.createDirectory(dir.resolve("journal")).resolve("tasks.json"), options);
+        journalList = journal.load();
+        for (int i = 0; i < 100; i++) journalList.add("task number " + i);
+        journal.save(journalList);
+
+        snapshot     = new TaskRepository(Files.createDirectory(dir.resolve("snapshot")).resolve("tasks.json"),
+                options.withJournal(false));
+        snapshotList = snapshot.load();
+        for (int i = 0; i < 10_000; i++) snapshotList.add("task number " + i + " with some typical length text");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(dir)) {
+            for (final Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public void appendChange() {
+        journalList.toggleDone(0);
+        journal.save(journalList);
+    }
+
+    @Benchmark
+    public void rewriteSnapshot() {
+        snapshotList.toggleDone(0);
+        snapshot.save(snapshotList);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendChangeContended() {
+        journalList.toggleDone(0);
+        journal.save(journalList);
+    }
+}
@@ -0,0 +1,55 @@
+package com.todo.storage;
+
+import com.todo.model.TaskList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalChangeWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void saveByAnotherInstance_signalsWatcher() throws Exception {
+        TaskRepository watched = new TaskRepository(tempDir.resolve("tasks.json"));
+        TaskList       list    = watched.load();
+        CountDownLatch changed = new CountDownLatch(1);
+
+        ExternalChangeWatcher watcher = watched.watch(changed::countDown);
+        try {
+            TaskRepository other = new TaskRepository(tempDir.resolve("tasks.json"));
+            TaskList       theirs = other.load();
+            theirs.add("från en annan terminal");
+            other.save(theirs);
+
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        } finally {
+            watcher.close();
+        }
+        assertTrue(watched.refresh(list));
+        assertEquals("från en annan terminal", list.getAll().get(0).text());
+    }
+
+    @Test
+    void unrelatedFile_isIgnored() throws Exception {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"));
+        CountDownLatch changed    = new CountDownLatch(1);
+
+        ExternalChangeWatcher watcher = repository.watch(changed::countDown);
+        try {
+            Files.write(tempDir.resolve("notes.txt"), List.of("inte uppgifter"));
+
+            assertFalse(changed.await(300, TimeUnit.MILLISECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+}
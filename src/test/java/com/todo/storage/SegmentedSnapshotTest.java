@@ -0,0 +1,161 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Deliberately not in creation order: the manifest, not the segments, decides the order.
+    private final List<Task> tasks = List.of(
+            new Task(4, "ring kalle", false, LocalDateTime.of(2025, 12, 31, 23, 59)),
+            new Task(1, "köp mjölk", true, LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_000)),
+            new Task(2, "betala hyran", true, LocalDateTime.of(2024, 3, 2, 9, 0)),
+            new Task(3, "boka tvättid", false, LocalDateTime.of(2025, 1, 5, 18, 0)));
+
+    @Test
+    void writeAndOpen_roundtrip_preservesOrderAndFields() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+
+        assertTrue(Files.exists(tempDir.resolve("2024-03.json")));
+        assertTrue(Files.exists(tempDir.resolve("2025-01.json")));
+        assertTrue(Files.exists(tempDir.resolve("2025-12.json")));
+        SegmentedSnapshot snapshot = SegmentedSnapshot.open(tempDir);
+        assertEquals(4, snapshot.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).id(), snapshot.id(i));
+            assertEquals(tasks.get(i).done(), snapshot.done(i));
+            assertEquals(tasks.get(i), snapshot.get(i));
+        }
+    }
+
+    @Test
+    void open_leavesSegmentsWithOnlyDoneTasksUnread() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+
+        SegmentedSnapshot snapshot = SegmentedSnapshot.open(tempDir);
+        assertEquals(2, snapshot.loadedSegments());
+
+        assertEquals(tasks.get(2), snapshot.get(2));
+        assertEquals(3, snapshot.loadedSegments());
+    }
+
+    @Test
+    void write_withDirtyMonths_rewritesOnlyThoseSegments() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+        FileTime untouched = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(tempDir.resolve("2024-03.json"), untouched);
+        Files.setLastModifiedTime(tempDir.resolve("2025-01.json"), untouched);
+
+        List<Task> changed = List.of(tasks.get(0), tasks.get(1), tasks.get(2),
+                new Task(3, "boka tvättid", true, LocalDateTime.of(2025, 1, 5, 18, 0)));
+        SegmentedSnapshot.write(tempDir, changed, Set.of(YearMonth.of(2025, 1)), Durability.FLUSH);
+
+        assertEquals(untouched, Files.getLastModifiedTime(tempDir.resolve("2024-03.json")));
+        assertFalse(Files.exists(tempDir.resolve("2025-01.json")));
+        assertTrue(Files.exists(tempDir.resolve("2025-01.1.json")));
+        assertEquals(changed.get(3), SegmentedSnapshot.open(tempDir).get(3));
+    }
+
+    @Test
+    void write_failingBeforeManifest_leavesOldSnapshotReadable() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+        // A directory where the next manifest is staged makes the write stop right before its rename.
+        Path staged = tempDir.resolve(SegmentedSnapshot.MANIFEST + ".1.tmp");
+        Files.createDirectories(staged.resolve("blocked"));
+
+        List<Task> changed = List.of(tasks.get(0), new Task(3, "boka tvättid", true, LocalDateTime.of(2025, 1, 5, 18, 0)));
+        Set<YearMonth> dirty = Set.of(YearMonth.of(2024, 3), YearMonth.of(2025, 1));
+        assertThrows(java.io.IOException.class, () -> SegmentedSnapshot.write(tempDir, changed, dirty, Durability.FLUSH));
+
+        SegmentedSnapshot old = SegmentedSnapshot.open(tempDir);
+        for (int i = 0; i < tasks.size(); i++) assertEquals(tasks.get(i), old.get(i));
+
+        Files.delete(staged.resolve("blocked"));
+        Files.delete(staged);
+        SegmentedSnapshot.write(tempDir, changed, dirty, Durability.FLUSH);
+        SegmentedSnapshot snapshot = SegmentedSnapshot.open(tempDir);
+        assertEquals(changed, List.of(snapshot.get(0), snapshot.get(1)));
+        // The stray segment of the failed write goes; the old manifest's stay while it is open.
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of("2024-03.json", "2025-01.2.json", "2025-01.json", "2025-12.json",
+                            SegmentedSnapshot.MANIFEST, SegmentedSnapshot.MANIFEST + ".1"),
+                    files.map(f -> f.getFileName().toString()).sorted().toList());
+        }
+        Reference.reachabilityFence(old);
+    }
+
+    @Test
+    void write_keepsSegmentsAnOpenSnapshotHasNotReadYet() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+        SegmentedSnapshot old = SegmentedSnapshot.open(tempDir);
+
+        List<Task> changed = List.of(tasks.get(0), new Task(1, "köp havremjölk", true, tasks.get(1).createdAt()));
+        SegmentedSnapshot.write(tempDir, changed, Set.of(YearMonth.of(2024, 3), YearMonth.of(2025, 1)), Durability.FLUSH);
+        SegmentedSnapshot.write(tempDir, changed, Set.of(YearMonth.of(2024, 3)), Durability.FLUSH);
+
+        assertEquals(tasks.get(2), old.get(2));
+        assertEquals(changed.get(1), SegmentedSnapshot.open(tempDir).get(1));
+    }
+
+    @Test
+    void write_withoutOpenSnapshots_keepsOnlyTheNewestManifest() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+        SegmentedSnapshot.write(tempDir, tasks, Set.of(YearMonth.of(2024, 3)), Durability.FLUSH);
+        SegmentedSnapshot.write(tempDir, tasks, Set.of(YearMonth.of(2024, 3)), Durability.FLUSH);
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of("2024-03.2.json", "2025-01.json", "2025-12.json", SegmentedSnapshot.MANIFEST + ".2"),
+                    files.map(f -> f.getFileName().toString()).sorted().toList());
+        }
+        assertEquals(tasks, List.copyOf(new TaskList(SegmentedSnapshot.open(tempDir)).getAll()));
+    }
+
+    @Test
+    void write_ofSnapshotOverSegments_readsOnlyTheDirtyMonths() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+        SegmentedSnapshot source = SegmentedSnapshot.open(tempDir);
+        TaskList          list   = new TaskList(source);
+        list.toggleDoneById(4);
+        assertEquals(2, source.loadedSegments());
+
+        SegmentedSnapshot.write(tempDir, list.snapshot(), Set.of(YearMonth.of(2025, 12)), Durability.FLUSH);
+
+        assertEquals(2, source.loadedSegments());
+        SegmentedSnapshot written = SegmentedSnapshot.open(tempDir);
+        assertTrue(written.done(0));
+        assertEquals(tasks.subList(1, 4), List.of(written.get(1), written.get(2), written.get(3)));
+    }
+
+    @Test
+    void write_whenMonthEmptied_deletesItsSegment() throws Exception {
+        SegmentedSnapshot.write(tempDir, tasks, null, Durability.FLUSH);
+
+        SegmentedSnapshot.write(tempDir, List.of(tasks.get(0)), Set.of(YearMonth.of(2024, 3)), Durability.FLUSH);
+
+        assertFalse(Files.exists(tempDir.resolve("2024-03.json")));
+        assertFalse(Files.exists(tempDir.resolve("2025-01.json")));
+        assertEquals(1, SegmentedSnapshot.open(tempDir).size());
+    }
+
+    @Test
+    void open_whenNotAManifest_throws() throws Exception {
+        Files.writeString(tempDir.resolve(SegmentedSnapshot.MANIFEST), "not a manifest");
+        assertThrows(java.io.IOException.class, () -> SegmentedSnapshot.open(tempDir));
+    }
+}
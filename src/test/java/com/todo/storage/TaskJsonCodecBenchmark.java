@@ -0,0 +1,74 @@
+package com.todo.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Load/save of tasks.json: reflection-based databind versus the streaming {@link TaskJsonCodec}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TaskJsonCodecBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    private final ObjectMapper mapper = TaskRepository.createMapper();
+    private Path       dir;
+    private Path       file;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() throws IOException {
+        final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        tasks = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            tasks.add(new Task(i, "task number " + i + " with some typical length text", i % 3 == 0,
+                    start.plusMinutes(i)));
+        }
+        dir  = Files.createTempDirectory("todo-bench");
+        file = dir.resolve("tasks.json");
+        mapper.writeValue(file.toFile(), tasks);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (final Path p : files.toList()) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public TaskList loadDatabind() throws IOException {
+        return new TaskList(mapper.readValue(file.toFile(), new TypeReference<List<Task>>() {}));
+    }
+
+    @Benchmark
+    public TaskList loadStreaming() throws IOException {
+        return TaskJsonCodec.read(file);
+    }
+
+    @Benchmark
+    public void saveDatabind() throws IOException {
+        mapper.writeValue(dir.resolve("out.json").toFile(), tasks);
+    }
+
+    @Benchmark
+    public void saveStreaming() throws IOException {
+        TaskJsonCodec.write(dir.resolve("out.json"), tasks, Durability.NONE);
+    }
+}
@@ -0,0 +1,109 @@
+package com.todo.storage;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskJsonCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Task> tasks = List.of(
+            new Task(3, "köp \"mjölk\"\n", false, LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_000)),
+            new Task(11, "ring kalle", true, LocalDateTime.of(2025, 12, 31, 23, 59)));
+
+    @Test
+    void write_producesSameBytesAsObjectMapper() throws Exception {
+        Path codec  = tempDir.resolve("codec.json");
+        Path mapper = tempDir.resolve("mapper.json");
+
+        TaskJsonCodec.write(codec, tasks, Durability.FLUSH);
+        TaskRepository.createMapper().writeValue(mapper.toFile(), tasks);
+
+        assertEquals(Files.readString(mapper), Files.readString(codec));
+    }
+
+    @Test
+    void read_fileWrittenByObjectMapper_restoresTasksAndNextId() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        TaskRepository.createMapper().writeValue(file.toFile(), tasks);
+
+        TaskList list = TaskJsonCodec.read(file);
+
+        assertEquals(tasks, list.getAll());
+        assertEquals(12, list.add("ny").id());
+    }
+
+    @Test
+    void read_ignoresUnknownFields() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, """
+                [ { "id": 1, "priority": { "level": [1, 2] }, "text": "a", "done": true,
+                    "createdAt": "2024-01-02T03:04:05" } ]""");
+
+        Task t = TaskJsonCodec.read(file).getAll().get(0);
+        assertEquals(new Task(1, "a", true, LocalDateTime.of(2024, 1, 2, 3, 4, 5)), t);
+    }
+
+    @Test
+    void read_acceptsTimestampArrayDates() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, """
+                [ { "id": 1, "text": "a", "done": false, "createdAt": [2024, 1, 2, 3, 4, 5, 600] } ]""");
+
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 600), TaskJsonCodec.read(file).getAll().get(0).createdAt());
+    }
+
+    @Test
+    void read_whenTaskLacksText_throws() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, "[ { \"id\": 1, \"createdAt\": \"2024-01-02T03:04:05\" } ]");
+
+        assertThrows(JsonParseException.class, () -> TaskJsonCodec.read(file));
+    }
+
+    @Test
+    void read_whenNotAnArray_throws() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, "{}");
+
+        assertThrows(JsonParseException.class, () -> TaskJsonCodec.read(file));
+    }
+
+    @Test
+    void dateTime_formatAndParse_matchIsoFormatter() {
+        List<LocalDateTime> samples = List.of(
+                LocalDateTime.of(2024, 1, 2, 3, 4),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 100_000_000),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123_400_000),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 1),
+                LocalDateTime.of(12024, 1, 2, 3, 4, 5));
+        char[] buf = new char[32];
+        for (LocalDateTime dt : samples) {
+            String iso = java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dt);
+            assertEquals(iso, new String(buf, 0, TaskJsonCodec.formatDateTime(dt, buf)));
+            assertEquals(dt, TaskJsonCodec.parseDateTime(iso.toCharArray(), 0, iso.length()));
+        }
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4),
+                TaskJsonCodec.parseDateTime("2024-01-02T03:04".toCharArray(), 0, 16));
+    }
+
+    @Test
+    void read_whenDateIsInvalid_throws() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, "[ { \"id\": 1, \"text\": \"a\", \"createdAt\": \"2024-13-02T03:04:05\" } ]");
+
+        assertThrows(JsonParseException.class, () -> TaskJsonCodec.read(file));
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -162,6 +164,19 @@ class TaskRepositoryTest {
         assertEquals(2, deleted.size());
     }
 
+    @Test
+    void saveDeleted_list_appendsAllTasksInOrder() {
+        TaskRepository repository = repo();
+        TaskList list = new TaskList(List.of());
+        Task t1 = list.add("ett");
+        Task t2 = list.add("två");
+
+        repository.saveDeleted(List.of(t1, t2));
+        repository.saveDeleted(List.of());
+
+        assertEquals(List.of("ett", "två"), repository.loadDeleted().stream().map(Task::text).toList());
+    }
+
     @Test
     void loadDeleted_whenFileAbsent_returnsEmptyList() {
         assertTrue(repo().loadDeleted().isEmpty());
@@ -182,4 +197,416 @@ class TaskRepositoryTest {
         assertEquals(1, loaded.getAll().size());
         assertEquals("ny", loaded.getAll().get(0).text());
     }
+
+    // --- journal ---
+
+    @Test
+    void save_inJournalMode_appendsChangesInsteadOfRewritingSnapshot() throws Exception {
+        TaskRepository repository = repo();
+        TaskList list = new TaskList(List.of());
+        list.add("ett");
+        repository.save(list);
+        String snapshot = Files.readString(tempDir.resolve("tasks.json"));
+
+        list.toggleDone(0);
+        list.add("två");
+        repository.save(list);
+
+        assertEquals(snapshot, Files.readString(tempDir.resolve("tasks.json")));
+        assertEquals(2, Files.readAllLines(tempDir.resolve("tasks.journal")).size());
+    }
+
+    @Test
+    void load_replaysJournalOnTopOfSnapshot() {
+        TaskRepository repository = repo();
+        TaskList list = repository.load();
+        list.add("ett");
+        list.add("två");
+        list.add("tre");
+        repository.save(list);
+
+        list.delete(0);
+        list.moveDown(0);
+        list.updateText(0, "TRE");
+        list.toggleDone(1);
+        repository.save(list);
+
+        List<Task> loaded = repo().load().getAll();
+        assertEquals(list.getAll(), loaded);
+    }
+
+    @Test
+    void load_ignoresTornLastJournalLine() throws Exception {
+        TaskRepository repository = repo();
+        TaskList list = repository.load();
+        list.add("ett");
+        repository.save(list);
+        Files.writeString(tempDir.resolve("tasks.journal"), "{\"type\":\"DEL",
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
+
+        assertEquals(1, repo().load().getAll().size());
+    }
+
+    @Test
+    void save_afterTornJournalLine_keepsEveryLaterChange() throws Exception {
+        TaskRepository repository = repo();
+        TaskList list = repository.load();
+        list.add("ett");
+        repository.save(list);
+        Files.writeString(tempDir.resolve("tasks.journal"), "{\"type\":\"DEL",
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
+
+        TaskRepository restarted = repo();
+        TaskList reloaded = restarted.load();
+        reloaded.add("två");
+        restarted.save(reloaded);
+        reloaded.add("tre");
+        restarted.save(reloaded);
+
+        assertEquals(List.of("ett", "två", "tre"), repo().load().getAll().stream().map(Task::text).toList());
+    }
+
+    @Test
+    void save_afterCheckpointInterval_foldsJournalIntoSnapshot() {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withCheckpointInterval(3));
+        TaskList list = repository.load();
+        list.add("ett");
+        list.add("två");
+        repository.save(list);
+        assertTrue(Files.exists(tempDir.resolve("tasks.journal")));
+
+        list.add("tre");
+        repository.save(list);
+
+        assertFalse(Files.exists(tempDir.resolve("tasks.journal")));
+        assertEquals(3, repo().load().getAll().size());
+    }
+
+    @Test
+    void save_withJournalDisabled_rewritesSnapshot() {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withJournal(false));
+        TaskList list = repository.load();
+        list.add("ett");
+        repository.save(list);
+
+        assertFalse(Files.exists(tempDir.resolve("tasks.journal")));
+        assertEquals("ett", repo().load().getAll().get(0).text());
+    }
+
+    // --- columnar loading ---
+
+    @Test
+    void load_columnar_keepsTasksAndAcceptsChanges() {
+        TaskRepository json = repo();
+        TaskList list = new TaskList(List.of());
+        list.add("köp mjölk");
+        list.add("ring kalle");
+        list.toggleDone(0);
+        json.save(list);
+
+        TaskRepository columnar = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withColumnar(true).withCheckpointInterval(1));
+        TaskList loaded = columnar.load();
+        assertEquals(list.getAll(), loaded.getAll());
+
+        loaded.updateText(1, "ring Kalle");
+        loaded.add("betala hyran");
+        columnar.save(loaded);
+        assertEquals(List.of("köp mjölk", "ring Kalle", "betala hyran"),
+                repo().load().getAll().stream().map(Task::text).toList());
+    }
+
+    // --- binary snapshot ---
+
+    @Test
+    void saveAndLoad_binaryFormat_roundtrip() {
+        StorageOptions binary = StorageOptions.DEFAULT.withFormat(SnapshotFormat.BINARY);
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"), binary);
+        TaskList list = new TaskList(List.of());
+        list.add("köp mjölk");
+        list.add("ring kalle");
+        list.toggleDone(1);
+        repository.save(list);
+
+        assertTrue(Files.exists(tempDir.resolve("tasks.bin")));
+        assertFalse(Files.exists(tempDir.resolve("tasks.json")));
+        assertEquals(list.getAll(), new TaskRepository(tempDir.resolve("tasks.json"), binary).load().getAll());
+    }
+
+    @Test
+    void load_binaryFormat_migratesExistingJson() {
+        TaskRepository json = repo();
+        TaskList list = new TaskList(List.of());
+        list.add("ett");
+        json.save(list);
+
+        TaskRepository binary = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withFormat(SnapshotFormat.BINARY).withCheckpointInterval(1));
+        TaskList loaded = binary.load();
+        loaded.add("två");
+        binary.save(loaded);
+
+        assertTrue(Files.exists(tempDir.resolve("tasks.bin")));
+        assertFalse(Files.exists(tempDir.resolve("tasks.json")));
+        assertEquals(2, binary.load().getAll().size());
+        assertEquals(2, repo().load().getAll().size());
+    }
+
+    // --- segmented snapshot ---
+
+    @Test
+    void saveAndLoad_segmentedFormat_preservesOrderAndNextId() {
+        StorageOptions segmented = StorageOptions.DEFAULT.withFormat(SnapshotFormat.SEGMENTED);
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"), segmented);
+        TaskList list = new TaskList(List.of(
+                new Task(5, "ny", false, LocalDateTime.of(2025, 6, 1, 12, 0)),
+                new Task(9, "gammal", true, LocalDateTime.of(2023, 2, 1, 12, 0))));
+        repository.save(list);
+
+        assertTrue(Files.exists(tempDir.resolve("tasks.segments").resolve("2023-02.json")));
+        assertFalse(Files.exists(tempDir.resolve("tasks.json")));
+        TaskList loaded = new TaskRepository(tempDir.resolve("tasks.json"), segmented).load();
+        assertEquals(list.getAll(), loaded.getAll());
+        assertEquals(10, loaded.add("nästa").id());
+    }
+
+    @Test
+    void save_segmentedCheckpoint_rewritesOnlyChangedMonths() throws Exception {
+        StorageOptions segmented = StorageOptions.DEFAULT.withFormat(SnapshotFormat.SEGMENTED)
+                .withCheckpointInterval(2);
+        Path segments = tempDir.resolve("tasks.segments");
+        new TaskRepository(tempDir.resolve("tasks.json"), segmented).save(new TaskList(List.of(
+                new Task(1, "gammal", true, LocalDateTime.of(2023, 2, 1, 12, 0)),
+                new Task(2, "ny", false, LocalDateTime.of(2025, 6, 1, 12, 0)))));
+        FileTime untouched = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(segments.resolve("2023-02.json"), untouched);
+
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"), segmented);
+        TaskList list = repository.load();
+        list.toggleDone(1);
+        list.moveUp(1);
+        repository.save(list);
+
+        assertFalse(Files.exists(tempDir.resolve("tasks.journal")));
+        assertEquals(untouched, Files.getLastModifiedTime(segments.resolve("2023-02.json")));
+        assertEquals(list.getAll(), new TaskRepository(tempDir.resolve("tasks.json"), segmented).load().getAll());
+    }
+
+    @Test
+    void load_segmentedFormat_migratesExistingJson() {
+        TaskList list = new TaskList(List.of());
+        list.add("ett");
+        repo().save(list);
+
+        TaskRepository segmented = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withFormat(SnapshotFormat.SEGMENTED).withCheckpointInterval(1));
+        TaskList loaded = segmented.load();
+        loaded.add("två");
+        segmented.save(loaded);
+
+        assertFalse(Files.exists(tempDir.resolve("tasks.json")));
+        assertEquals(2, repo().load().getAll().size());
+    }
+
+    // --- several processes ---
+
+    @Test
+    void save_fromTwoInstances_mergesInsteadOfOverwriting() {
+        TaskRepository first  = repo();
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+
+        a.add("från a");
+        first.save(a);
+        b.add("från b");
+        second.save(b);
+
+        List<Task> onDisk = repo().load().getAll();
+        assertEquals(List.of("från a", "från b"), onDisk.stream().map(Task::text).sorted().toList());
+        assertNotEquals(onDisk.get(0).id(), onDisk.get(1).id());
+        assertEquals(onDisk, b.getAll());
+    }
+
+    @Test
+    void save_afterOtherInstanceCheckpointed_rebasesOntoItsSnapshot() {
+        StorageOptions everySave = StorageOptions.DEFAULT.withCheckpointInterval(1);
+        TaskRepository first  = new TaskRepository(tempDir.resolve("tasks.json"), everySave);
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+
+        a.add("från a");
+        first.save(a);
+        assertFalse(Files.exists(tempDir.resolve("tasks.journal")));
+        b.add("från b");
+        second.save(b);
+
+        List<Task> onDisk = repo().load().getAll();
+        assertEquals(List.of("från a", "från b"), onDisk.stream().map(Task::text).sorted().toList());
+        assertEquals(onDisk, b.getAll());
+    }
+
+    @Test
+    void save_otherInstanceDeletedTask_localEditDoesNotResurrectIt() {
+        TaskList seed = new TaskList(List.of());
+        seed.add("delad");
+        repo().save(seed);
+        TaskRepository first  = repo();
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+
+        a.delete(0);
+        first.save(a);
+        b.updateText(0, "ändrad");
+        second.save(b);
+
+        assertTrue(b.getAll().isEmpty());
+        assertTrue(repo().load().getAll().isEmpty());
+    }
+
+    @Test
+    void refresh_mergesOnlyTheJournalTailWrittenByAnotherInstance() {
+        TaskRepository first  = repo();
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+        b.add("ej sparad");
+
+        a.add("från a");
+        first.save(a);
+
+        assertTrue(second.refresh(b));
+        assertEquals(List.of("ej sparad", "från a"), b.getAll().stream().map(Task::text).sorted().toList());
+        assertFalse(second.refresh(b));
+        assertEquals(1, b.drainChanges().size());
+    }
+
+    @Test
+    void save_afterFailedSave_mergesWhatAnotherInstanceSavedMeanwhile() throws Exception {
+        TaskRepository first  = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withJournal(false));
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+        Path blocker = Files.createDirectories(tempDir.resolve("tasks.json.tmp").resolve("x"));
+
+        a.add("från a");
+        assertThrows(StorageException.class, () -> first.save(a));
+        b.add("från b");
+        second.save(b);
+        Files.delete(blocker);
+        Files.delete(blocker.getParent());
+        first.save(a);
+
+        List<Task> onDisk = repo().load().getAll();
+        assertEquals(List.of("från a", "från b"), onDisk.stream().map(Task::text).sorted().toList());
+        assertEquals(2, onDisk.stream().map(Task::id).distinct().count());
+    }
+
+    @Test
+    void refresh_afterFailedSave_stillMergesAndKeepsUnsavedChanges() throws Exception {
+        TaskRepository first  = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withJournal(false));
+        TaskRepository second = repo();
+        TaskList a = first.load();
+        TaskList b = second.load();
+        Files.createDirectories(tempDir.resolve("tasks.json.tmp").resolve("x"));
+
+        a.add("från a");
+        assertThrows(StorageException.class, () -> first.save(a));
+        b.add("från b");
+        second.save(b);
+
+        assertTrue(first.refresh(a));
+        assertEquals(List.of("från a", "från b"), a.getAll().stream().map(Task::text).sorted().toList());
+        assertEquals(1, a.drainChanges().size());
+    }
+
+    @Test
+    void refresh_afterHandEditOfSnapshot_reloads() throws Exception {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withJournal(false));
+        TaskList list = repository.load();
+        list.add("ett");
+        repository.save(list);
+
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, Files.readString(file).replace("ett", "ETT"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertTrue(repository.refresh(list));
+        assertEquals("ETT", list.getAll().get(0).text());
+    }
+
+    @Test
+    void refresh_withoutOtherWriters_changesNothing() {
+        TaskRepository repository = repo();
+        TaskList list = repository.load();
+        list.add("ett");
+        repository.save(list);
+
+        assertFalse(repository.refresh(list));
+    }
+
+    // --- durability ---
+
+    @Test
+    void saveAndLoad_everyDurability_roundtrip() throws Exception {
+        for (Durability durability : Durability.values()) {
+            Path file = Files.createDirectories(tempDir.resolve(durability.name())).resolve("tasks.json");
+            StorageOptions options = StorageOptions.DEFAULT.withDurability(durability).withCheckpointInterval(2);
+            TaskRepository repository = new TaskRepository(file, options);
+            TaskList list = repository.load();
+            list.add("ett");
+            repository.save(list);
+            list.add("två");
+            list.toggleDone(0);
+            repository.save(list);
+
+            assertEquals(list.getAll(), new TaskRepository(file, options).load().getAll(), durability.name());
+            assertFalse(Files.exists(file.resolveSibling("tasks.json.tmp")), durability.name());
+        }
+    }
+
+    @Test
+    void save_whenSnapshotWriteFails_keepsPreviousSnapshot() throws Exception {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json"),
+                StorageOptions.DEFAULT.withJournal(false));
+        TaskList list = new TaskList(List.of());
+        list.add("ett");
+        repository.save(list);
+        String before = Files.readString(tempDir.resolve("tasks.json"));
+
+        // A directory in the way of the temporary file makes the next write fail before the rename.
+        Files.createDirectory(tempDir.resolve("tasks.json.tmp"));
+        list.add("två");
+        assertThrows(StorageException.class, () -> repository.save(list));
+
+        assertEquals(before, Files.readString(tempDir.resolve("tasks.json")));
+        assertEquals(1, repo().load().getAll().size());
+    }
+
+    @Test
+    void save_fromConcurrentThreads_persistsEveryChange() throws Exception {
+        TaskRepository repository = repo();
+        TaskList list = repository.load();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int n = t;
+            threads[t] = Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 25; i++) {
+                    list.add("tråd " + n + " nr " + i);
+                    repository.save(list);
+                }
+            });
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(200, repo().load().getAll().size());
+        assertTrue(Files.readAllLines(tempDir.resolve("tasks.journal")).size() <= 200);
+    }
 }
@@ -0,0 +1,147 @@
+package com.todo.storage;
+
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindPersisterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger          saves  = new AtomicInteger();
+    private final List<StorageException> errors = new CopyOnWriteArrayList<>();
+
+    private TaskRepository countingRepo() {
+        return new TaskRepository(tempDir.resolve("tasks.json")) {
+            @Override
+            public synchronized void save(TaskList taskList) {
+                saves.incrementAndGet();
+                super.save(taskList);
+            }
+        };
+    }
+
+    @Test
+    void markDirty_burstOfChanges_isCoalescedIntoOneSave() throws Exception {
+        TaskRepository repository = countingRepo();
+        TaskList list = repository.load();
+        try (WriteBehindPersister persister = new WriteBehindPersister(repository, list,
+                Duration.ofMillis(100), Duration.ofSeconds(10), errors::add)) {
+            for (int i = 0; i < 50; i++) {
+                list.add("task " + i);
+                persister.markDirty();
+            }
+            Thread.sleep(400);
+            assertEquals(1, saves.get());
+        }
+        assertEquals(50, new TaskRepository(tempDir.resolve("tasks.json")).load().getAll().size());
+    }
+
+    @Test
+    void markDirty_continuousChanges_areSavedWithinMaxDelay() throws Exception {
+        TaskRepository repository = countingRepo();
+        TaskList list = repository.load();
+        try (WriteBehindPersister persister = new WriteBehindPersister(repository, list,
+                Duration.ofMillis(100), Duration.ofMillis(200), errors::add)) {
+            long end = System.nanoTime() + Duration.ofMillis(700).toNanos();
+            while (System.nanoTime() < end) {
+                list.add("task");
+                persister.markDirty();
+                Thread.sleep(20);
+            }
+            assertTrue(saves.get() >= 2, "saves: " + saves.get());
+        }
+    }
+
+    @Test
+    void flush_savesImmediately() {
+        TaskRepository repository = countingRepo();
+        TaskList list = repository.load();
+        try (WriteBehindPersister persister = new WriteBehindPersister(repository, list,
+                Duration.ofHours(1), Duration.ofHours(1), errors::add)) {
+            list.add("ett");
+            persister.markDirty();
+            assertTrue(persister.flush());
+            assertEquals("ett", new TaskRepository(tempDir.resolve("tasks.json")).load().getAll().get(0).text());
+        }
+    }
+
+    @Test
+    void close_savesPendingChanges() {
+        TaskRepository repository = countingRepo();
+        TaskList list = repository.load();
+        WriteBehindPersister persister = new WriteBehindPersister(repository, list,
+                Duration.ofHours(1), Duration.ofHours(1), errors::add);
+        list.add("ett");
+        persister.markDirty();
+        persister.close();
+
+        assertEquals(1, saves.get());
+        assertEquals(1, new TaskRepository(tempDir.resolve("tasks.json")).load().getAll().size());
+    }
+
+    @Test
+    void saveFailure_isReportedToCallbackAndFlushReturnsFalse() {
+        TaskRepository failing = new TaskRepository(tempDir.resolve("tasks.json")) {
+            @Override
+            public synchronized void save(TaskList taskList) {
+                throw new StorageException("disk full", null);
+            }
+        };
+        try (WriteBehindPersister persister = new WriteBehindPersister(failing, new TaskList(List.of()),
+                Duration.ZERO, Duration.ZERO, errors::add)) {
+            assertFalse(persister.flush());
+            assertEquals("disk full", errors.get(0).getMessage());
+        }
+    }
+
+    @Test
+    void archive_isAppendedByTheSaverThread() {
+        TaskRepository repository = countingRepo();
+        TaskList list = repository.load();
+        try (WriteBehindPersister persister = new WriteBehindPersister(repository, list,
+                Duration.ofHours(1), Duration.ofHours(1), errors::add)) {
+            Task t = list.add("ta bort mig");
+            list.deleteById(t.id());
+            persister.archive(List.of(t));
+
+            assertTrue(persister.flush());
+            assertEquals(List.of(t), repository.loadDeleted());
+            assertTrue(errors.isEmpty());
+        }
+    }
+
+    @Test
+    void archiveFailure_isReportedAndRetriedWithTheNextSave() {
+        AtomicInteger attempts = new AtomicInteger();
+        TaskRepository flaky = new TaskRepository(tempDir.resolve("tasks.json")) {
+            @Override
+            public void saveDeleted(List<Task> tasks) {
+                if (attempts.incrementAndGet() == 1) throw new StorageException("disk full", null);
+                super.saveDeleted(tasks);
+            }
+        };
+        TaskList list = flaky.load();
+        try (WriteBehindPersister persister = new WriteBehindPersister(flaky, list,
+                Duration.ofHours(1), Duration.ofHours(1), errors::add)) {
+            Task t = list.add("ta bort mig");
+            list.deleteById(t.id());
+            persister.archive(List.of(t));
+
+            assertFalse(persister.flush());
+            assertEquals("disk full", errors.get(0).getMessage());
+            assertTrue(persister.flush());
+            assertEquals(List.of(t), flaky.loadDeleted());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.todo.tui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdjustScrollTest {
+    private static final int AVAILABLE = ScreenRenderer.TASK_END - ScreenRenderer.TASK_START + 1;
+
+    @Test
+    void cursorAboveOffset_scrollsUpToCursor() {
+        assertEquals(3, ListScreen.adjustScroll(i -> 1, 100, 3, 10));
+    }
+
+    @Test
+    void cursorStillVisible_keepsOffset() {
+        assertEquals(10, ListScreen.adjustScroll(i -> 1, 100, 10 + AVAILABLE - 1, 10));
+    }
+
+    @Test
+    void jumpToBottom_ofHugeList_showsLastScreenful() {
+        int size = 1_000_000;
+        assertEquals(size - AVAILABLE, ListScreen.adjustScroll(i -> 1, size, size - 1, 0));
+        assertEquals(size - 1, ListScreen.adjustScroll(i -> AVAILABLE, size, size - 1, 0));
+    }
+
+    @Test
+    void randomHeights_matchScanningEveryOffset() {
+        Random random = new Random(5);
+        for (int round = 0; round < 2_000; round++) {
+            int   size    = 1 + random.nextInt(60);
+            int[] heights = random.ints(size, 1, 5).toArray();
+            int   cursor  = random.nextInt(size);
+            int   offset  = random.nextInt(size);
+
+            assertEquals(scan(i -> heights[i], size, cursor, offset),
+                    ListScreen.adjustScroll(i -> heights[i], size, cursor, offset));
+        }
+    }
+
+    /** Tries every offset from {@code scrollOffset} on until the cursor's first row fits. */
+    private static int scan(final IntUnaryOperator rows, final int size, final int cursor, int scrollOffset) {
+        if (cursor < scrollOffset) return cursor;
+        while (scrollOffset <= cursor) {
+            int used = 0;
+            for (int i = scrollOffset; i < size; i++) {
+                used += rows.applyAsInt(i);
+                if (i == cursor) return scrollOffset;
+                if (used >= AVAILABLE) break;
+            }
+            scrollOffset++;
+        }
+        return Math.min(scrollOffset, cursor);
+    }
+}
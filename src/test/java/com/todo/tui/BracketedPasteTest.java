@@ -0,0 +1,56 @@
+package com.todo.tui;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BracketedPasteTest {
+
+    @Test
+    void paste_arrivesAsOneChunkBetweenMarkers() throws Exception {
+        Screen screen = screen("\033[200~buy milk\nand\tbread\033[201~x");
+
+        assertSame(BracketedPaste.START, screen.readInput());
+        assertEquals("buy milk and bread", BracketedPaste.read(screen));
+        assertEquals('x', screen.readInput().getCharacter());
+    }
+
+    @Test
+    void otherEscapeSequences_areStillDecoded() throws Exception {
+        Screen screen = screen("\033[A\033[3~");
+
+        assertEquals(KeyType.ArrowUp, screen.readInput().getKeyType());
+        assertEquals(KeyType.Delete, screen.readInput().getKeyType());
+    }
+
+    @Test
+    void read_unterminatedPaste_endsAtEndOfInput() throws Exception {
+        Screen screen = screen("\033[200~half");
+        screen.readInput();
+
+        assertEquals("half", BracketedPaste.read(screen));
+    }
+
+    private static Screen screen(final String input) throws Exception {
+        ANSITerminal terminal = new ANSITerminal(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayOutputStream(), StandardCharsets.UTF_8) {
+            @Override
+            protected TerminalSize findTerminalSize() {
+                return new TerminalSize(ScreenRenderer.WIDTH, ScreenRenderer.HEIGHT);
+            }
+        };
+        terminal.getInputDecoder().addProfile(BracketedPaste.profile());
+        Screen screen = new TerminalScreen(terminal);
+        screen.startScreen();
+        return screen;
+    }
+}
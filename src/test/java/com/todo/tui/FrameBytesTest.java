@@ -0,0 +1,74 @@
+package com.todo.tui;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+import com.todo.model.Task;
+import com.todo.model.TaskList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes sent to an ANSI terminal per frame, i.e. what a keystroke costs over SSH. A full screen
+ * is a little over 2 KB; frames after the first should only carry the cells that changed.
+ */
+class FrameBytesTest {
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    private Screen         screen;
+    private ScreenRenderer renderer;
+    private List<Task>     tasks;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ANSITerminal terminal = new ANSITerminal(new ByteArrayInputStream(new byte[0]), sent, StandardCharsets.UTF_8) {
+            @Override
+            protected TerminalSize findTerminalSize() {
+                return new TerminalSize(ScreenRenderer.WIDTH, ScreenRenderer.HEIGHT);
+            }
+        };
+        screen = new TerminalScreen(terminal);
+        screen.startScreen();
+        TaskList list = new TaskList(List.of());
+        for (int i = 0; i < 40; i++) list.add("task number " + i + " with some text");
+        renderer = new ScreenRenderer(list);
+        tasks    = list.snapshot();
+        renderer.draw(screen, tasks, 0, false, 0);
+        assertTrue(sent.size() > 2_000);
+    }
+
+    @Test
+    void unchangedFrame_sendsAlmostNothing() throws Exception {
+        assertTrue(bytes(() -> renderer.draw(screen, tasks, 0, false, 0)) < 20);
+    }
+
+    @Test
+    void cursorMove_sendsOnlyTheTwoRowsMarkers() throws Exception {
+        assertTrue(bytes(() -> renderer.draw(screen, tasks, 1, false, 0)) < 100);
+    }
+
+    @Test
+    void scrollByOneTask_shiftsRowsInsteadOfResendingThem() throws Exception {
+        renderer.draw(screen, tasks, 17, false, 0);
+
+        assertTrue(bytes(() -> renderer.draw(screen, tasks, 18, false, 1)) < 200);
+    }
+
+    private int bytes(final Frame frame) throws Exception {
+        sent.reset();
+        frame.draw();
+        return sent.size();
+    }
+
+    private interface Frame {
+        void draw() throws Exception;
+    }
+}
@@ -0,0 +1,82 @@
+package com.todo.tui;
+
+import com.todo.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayoutCacheTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 9, 30);
+
+    @Test
+    void layout_matchesTextWrapper() {
+        LayoutCache        cache  = new LayoutCache(20, 8);
+        Task               task   = new Task(1, "a rather long task text that wraps", false, CREATED);
+        LayoutCache.Layout layout = cache.layout(task, false);
+
+        assertEquals(TextWrapper.wrapText(task.text(), 20), lines(layout));
+        assertEquals("", layout.stamp());
+        assertEquals(2, layout.rows());
+    }
+
+    @Test
+    void layout_stampFitsAfterLastLine_staysOnIt() {
+        LayoutCache.Layout layout = new LayoutCache(30, 8).layout(new Task(1, "short", false, CREATED), true);
+
+        assertEquals("  2024-05-01 09:30", layout.stamp());
+        assertFalse(layout.stampBelow());
+        assertEquals(1, layout.rows());
+    }
+
+    @Test
+    void layout_stampTooLongForLastLine_getsARowOfItsOwn() {
+        LayoutCache.Layout layout = new LayoutCache(20, 8).layout(new Task(1, "a rather long text", false, CREATED), true);
+
+        assertEquals("2024-05-01 09:30", layout.stamp());
+        assertTrue(layout.stampBelow());
+        assertEquals(2, layout.rows());
+    }
+
+    @Test
+    void layout_sameText_isReused() {
+        LayoutCache        cache = new LayoutCache(20, 8);
+        Task               task  = new Task(1, "text", false, CREATED);
+        LayoutCache.Layout first = cache.layout(task, false);
+
+        assertSame(first, cache.layout(new Task(1, task.text(), true, CREATED), false));
+        assertSame(first, cache.layout(new Task(1, new String("text"), false, CREATED), false));
+    }
+
+    @Test
+    void layout_afterTextChange_isWrappedAgain() {
+        LayoutCache cache = new LayoutCache(10, 8);
+        cache.layout(new Task(1, "short", false, CREATED), false);
+
+        assertEquals(List.of("now much", "longer"), lines(cache.layout(new Task(1, "now much longer", false, CREATED), false)));
+    }
+
+    @Test
+    void capacity_dropsLeastRecentlyUsed() {
+        LayoutCache        cache  = new LayoutCache(20, 2);
+        Task               a      = new Task(1, "a", false, CREATED);
+        LayoutCache.Layout layout = cache.layout(a, false);
+        cache.layout(new Task(2, "b", false, CREATED), false);
+        cache.layout(a, false);
+        cache.layout(new Task(3, "c", false, CREATED), false);
+
+        assertEquals(2, cache.size());
+        assertSame(layout, cache.layout(a, false));
+    }
+
+    private static List<String> lines(final LayoutCache.Layout layout) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < layout.lines().count(); i++) {
+            lines.add(layout.text().substring(layout.lines().start(i), layout.lines().end(i)));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,85 @@
+package com.todo.tui;
+
+import com.todo.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskWindowTest {
+
+    @Test
+    void get_readsRowsAroundTheCursorInOneFetch() {
+        CountingList tasks  = new CountingList(1_000_000);
+        TaskWindow   window = TaskWindow.over(tasks, null, 10);
+
+        assertEquals(500_000, window.get(500_000).id());
+        for (int i = 500_000 - 10; i < 500_000 + 10; i++) assertEquals(i, window.get(i).id());
+
+        assertEquals(1, tasks.fetches.size());
+        assertEquals(20, tasks.materialized);
+        assertEquals(0, tasks.gets);
+    }
+
+    @Test
+    void get_outsideTheWindow_fetchesAroundThatRow() {
+        CountingList tasks  = new CountingList(100);
+        TaskWindow   window = TaskWindow.over(tasks, null, 10);
+        window.get(50);
+
+        assertEquals(99, window.get(99).id());
+        assertEquals(0, window.get(0).id());
+        assertEquals(List.of(List.of(40, 60), List.of(89, 100), List.of(0, 10)), tasks.fetches);
+    }
+
+    @Test
+    void over_sameList_keepsTheWindow() {
+        CountingList tasks  = new CountingList(100);
+        TaskWindow   window = TaskWindow.over(tasks, null, 10);
+        window.get(5);
+
+        assertSame(window, TaskWindow.over(tasks, window, 10));
+        assertNotSame(window, TaskWindow.over(new CountingList(100), window, 10));
+        assertEquals(100, window.size());
+    }
+
+    /** Tasks with ids equal to their positions, counting how they are read. */
+    private static final class CountingList extends AbstractList<Task> {
+        private final int                 size;
+        private final List<List<Integer>> fetches = new ArrayList<>();
+        private       int                 materialized;
+        private       int                 gets;
+
+        CountingList(final int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Task get(final int index) {
+            gets++;
+            return task(index);
+        }
+
+        @Override
+        public List<Task> subList(final int from, final int to) {
+            fetches.add(List.of(from, to));
+            final List<Task> tasks = new ArrayList<>();
+            for (int i = from; i < to; i++) tasks.add(task(i));
+            materialized += to - from;
+            return tasks;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private static Task task(final int index) {
+            return new Task(index, "t" + index, false, LocalDateTime.of(2024, 1, 1, 0, 0));
+        }
+    }
+}
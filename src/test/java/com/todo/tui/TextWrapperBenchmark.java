@@ -0,0 +1,62 @@
+package com.todo.tui;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping one task at screen width: the substring loop TextWrapper used to run, which copies the
+ * rest of the text for every line, against break offsets into reused {@link TextWrapper.Lines}
+ * and against those offsets turned into strings. Texts are a short task, a long one of words, and
+ * one without a single space, which only breaks mid-word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextWrapperBenchmark {
+
+    @Param({"short", "long", "noSpace"})
+    String shape;
+
+    private final TextWrapper.Lines lines = new TextWrapper.Lines();
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = switch (shape) {
+            case "short" -> "buy milk and bread on the way home";
+            case "long"  -> "call the plumber about the kitchen tap before friday ".repeat(80);
+            default      -> "abcdefghijklmnopqrstuvwxyz".repeat(160);
+        };
+    }
+
+    @Benchmark
+    public List<String> substrings() {
+        String             rest   = text;
+        final List<String> result = new ArrayList<>();
+        while (rest.length() > ScreenRenderer.TEXT_WIDTH) {
+            int breakAt   = ScreenRenderer.TEXT_WIDTH;
+            int lastSpace = rest.lastIndexOf(' ', ScreenRenderer.TEXT_WIDTH);
+            if (lastSpace > ScreenRenderer.TEXT_WIDTH / 2) breakAt = lastSpace;
+            result.add(rest.substring(0, breakAt).stripTrailing());
+            rest = rest.substring(breakAt).stripLeading();
+        }
+        result.add(rest);
+        return result;
+    }
+
+    @Benchmark
+    public TextWrapper.Lines breaks() {
+        return TextWrapper.wrap(text, ScreenRenderer.TEXT_WIDTH, lines);
+    }
+
+    @Benchmark
+    public List<String> strings() {
+        return TextWrapper.wrapText(text, ScreenRenderer.TEXT_WIDTH);
+    }
+}
@@ -0,0 +1,95 @@
+package com.todo.tui;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextWrapperTest {
+
+    @Test
+    void wrapText_breaksAtLastSpacePastTheMiddle() {
+        assertEquals(List.of("buy milk and", "bread"), TextWrapper.wrapText("buy milk and bread", 14));
+    }
+
+    @Test
+    void wrapText_withoutSpaces_breaksMidWord() {
+        assertEquals(List.of("abcdefghij", "klmnopqrst", "uvw"), TextWrapper.wrapText("abcdefghijklmnopqrstuvw", 10));
+    }
+
+    @Test
+    void wrapText_asciiMatchesSubstringLoop() {
+        Random random = new Random(11);
+        for (int round = 0; round < 5_000; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(80); i > 0; i--) text.append(random.nextInt(4) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            int width = 1 + random.nextInt(20);
+
+            assertEquals(substrings(text.toString(), width), TextWrapper.wrapText(text.toString(), width), text + " @" + width);
+        }
+    }
+
+    @Test
+    void wrap_countsWideCharactersAsTwoColumns() {
+        TextWrapper.Lines lines = TextWrapper.wrap("漢字漢字漢", 4, new TextWrapper.Lines());
+
+        assertEquals(3, lines.count());
+        assertEquals(4, lines.width(0));
+        assertEquals(2, lines.width(2));
+    }
+
+    @Test
+    void wrap_neverSplitsSurrogatePairsOrMarksFromTheirBase() {
+        String            text  = "😀😀éé";
+        TextWrapper.Lines lines = TextWrapper.wrap(text, 3, new TextWrapper.Lines());
+
+        assertEquals(List.of("😀", "😀é", "é"), TextWrapper.wrapText(text, 3));
+        assertEquals(3, lines.width(1));
+    }
+
+    @Test
+    void wrap_reusesLinesAcrossTexts() {
+        TextWrapper.Lines lines = new TextWrapper.Lines();
+        TextWrapper.wrap("one two three four five six seven eight", 6, lines);
+
+        assertSame(lines, TextWrapper.wrap("short", 6, lines));
+        assertEquals(1, lines.count());
+        assertEquals(5, lines.end(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.start(1));
+    }
+
+    @Test
+    void draw_putsOneCellPerCharacterAndComposesMarks() throws Exception {
+        TerminalScreen screen = new TerminalScreen(new DefaultVirtualTerminal(new TerminalSize(20, 2)));
+        screen.startScreen();
+        TextGraphics g = screen.newTextGraphics();
+
+        int end = TextWrapper.draw(g, 1, 0, new StringBuilder("xé漢y"), 1, 5);
+
+        assertEquals(5, end);
+        assertEquals("é", screen.getBackCharacter(1, 0).getCharacterString());
+        assertEquals("漢", screen.getBackCharacter(2, 0).getCharacterString());
+        assertEquals("y", screen.getBackCharacter(4, 0).getCharacterString());
+    }
+
+    /** The wrapping this class did before it measured columns: a copy of the rest per line. */
+    private static List<String> substrings(String text, final int maxWidth) {
+        final List<String> lines = new ArrayList<>();
+        while (text.length() > maxWidth) {
+            int breakAt   = maxWidth;
+            int lastSpace = text.lastIndexOf(' ', maxWidth);
+            if (lastSpace > maxWidth / 2) breakAt = lastSpace;
+            lines.add(text.substring(0, breakAt).stripTrailing());
+            text = text.substring(breakAt).stripLeading();
+        }
+        lines.add(text);
+        return lines;
+    }
+}